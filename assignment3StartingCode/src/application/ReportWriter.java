@@ -0,0 +1,210 @@
+package application;
+
+import application.WordTracker.FileInfo;
+import application.WordTracker.WordEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes report lines for WordEntry objects straight into one reusable byte
+ * buffer that goes to the output in 64 KiB blocks. Numbers are formatted by
+ * hand and each file name is encoded once per report, so writing an entry
+ * allocates nothing. The bytes are the same as the report built from
+ * Strings and encoded with the platform charset, which like every charset
+ * Java defaults to encodes ASCII as itself.
+ */
+class ReportWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_INT_DIGITS = 11;
+
+    private static final byte[] FILES = ascii(" -> files: ");
+    private static final byte[] ARROW = ascii(" -> ");
+    private static final byte[] COMMA = ascii(", ");
+    private static final byte[] FILE_SEPARATOR = ascii(" ; ");
+    private static final byte[] LINES = ascii(" lines=[");
+    private static final byte[] FREQUENCY = ascii(" freq=");
+    private static final byte[] TOTAL_FREQUENCY = ascii(" | totalFreq=");
+    private static final byte[] NOT_FOUND = ascii(" -> not found");
+
+    private final OutputStream out;
+    private final boolean closeOut;
+    private final Charset charset = Charset.defaultCharset();
+    private final byte[] lineSeparator;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+
+    // File names already encoded, by file id, and the lines of the file being written
+    private byte[][] fileNames = new byte[0][];
+    private int[] lines = new int[64];
+
+    /**
+     * @param out where the report goes
+     * @param closeOut whether close() closes out as well; false for System.out
+     */
+    ReportWriter(OutputStream out, boolean closeOut) {
+        this.out = out;
+        this.closeOut = closeOut;
+        this.lineSeparator = System.lineSeparator().getBytes(charset);
+    }
+
+    /**
+     * Writes one report line for the entry.
+     *
+     * @param mode -pf for files, -pl to add the lines in each file, -po to
+     *        add the frequency in each file and in total as well
+     */
+    void writeEntry(WordEntry entry, String mode) throws IOException {
+        writeText(entry.getWord());
+        if (mode.equals("-pf")) {
+            write(FILES);
+            for (int i = 0; i < entry.getFileCount(); i++) {
+                if (i > 0) write(COMMA);
+                write(fileName(entry, i));
+            }
+        } else {
+            boolean includeFreq = mode.equals("-po");
+            write(ARROW);
+            for (int i = 0; i < entry.getFileCount(); i++) {
+                if (i > 0) write(FILE_SEPARATOR);
+                writeFile(entry, i, includeFreq);
+            }
+            if (includeFreq) {
+                write(TOTAL_FREQUENCY);
+                writeInt(entry.getTotalFrequency());
+            }
+        }
+        write(lineSeparator);
+    }
+
+    /**
+     * Writes the line for a word that is not in the repository.
+     */
+    void writeNotFound(String word) throws IOException {
+        writeText(word);
+        write(NOT_FOUND);
+        write(lineSeparator);
+    }
+
+    // name lines=[1, 2, 3] and, for -po, freq=3
+    private void writeFile(WordEntry entry, int index, boolean includeFreq) throws IOException {
+        FileInfo info = entry.getFileInfo(index);
+        write(fileName(entry, index));
+        write(LINES);
+        lines = info.getLines(lines);
+        for (int i = 0; i < info.getFrequency(); i++) {
+            if (i > 0) write(COMMA);
+            writeInt(lines[i]);
+        }
+        write(']');
+        if (includeFreq) {
+            write(FREQUENCY);
+            writeInt(info.getFrequency());
+        }
+    }
+
+    private byte[] fileName(WordEntry entry, int index) {
+        int id = entry.getFileId(index);
+        if (id >= fileNames.length) {
+            fileNames = Arrays.copyOf(fileNames, Math.max(id + 1, fileNames.length * 2));
+        }
+        if (fileNames[id] == null) {
+            fileNames[id] = entry.getFileName(index).getBytes(charset);
+        }
+        return fileNames[id];
+    }
+
+    // Writes ASCII text byte for byte and hands anything else to the charset.
+    private void writeText(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= 0x80) {
+                write(text.getBytes(charset));
+                return;
+            }
+        }
+        if (BUFFER_SIZE - count < length) {
+            flushBuffer();
+            if (length > BUFFER_SIZE) {
+                write(text.getBytes(charset));
+                return;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) text.charAt(i);
+        }
+    }
+
+    // Writes the decimal digits of value, as Integer.toString would.
+    void writeInt(int value) throws IOException {
+        if (BUFFER_SIZE - count < MAX_INT_DIGITS) {
+            flushBuffer();
+        }
+        if (value < 0) {
+            buffer[count++] = '-';
+        }
+        // Digits are taken off as negatives, so MIN_VALUE needs no special case
+        int negative = value < 0 ? value : -value;
+        int end = count + digits(negative);
+        count = end;
+        do {
+            int quotient = negative / 10;
+            buffer[--end] = (byte) ('0' + quotient * 10 - negative);
+            negative = quotient;
+        } while (negative != 0);
+    }
+
+    private static int digits(int negative) {
+        int digits = 1;
+        for (int limit = -10; digits < 10 && negative <= limit; limit *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private void write(int b) throws IOException {
+        if (count == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (BUFFER_SIZE - count < bytes.length) {
+            flushBuffer();
+            if (bytes.length > BUFFER_SIZE) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (closeOut) {
+            out.close();
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
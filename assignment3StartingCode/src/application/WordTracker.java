@@ -1,12 +1,30 @@
 package application;
 
 import implementations.BSTree;
-import implementations.BSTreeNode;
+import implementations.HashedWordIndex;
+import implementations.RadixTree;
+import implementations.TreeWordIndex;
+import utilities.EntryInput;
+import utilities.EntryOutput;
 import utilities.Iterator;
+import utilities.KeyedEntryCodec;
 import utilities.RepositoryManager;
+import utilities.WordIndex;
+import wordtracker.WordTokenizer;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * WordTracker.java
@@ -21,39 +39,209 @@ public class WordTracker {
     public static class WordEntry implements Comparable<WordEntry>, Serializable {
         private static final long serialVersionUID = 1L;
 
-        private final String word;
+        // Fields of the map-based form, which serialized data still uses
+        private static final ObjectStreamField[] serialPersistentFields = {
+                new ObjectStreamField("word", String.class),
+                new ObjectStreamField("files", Map.class) };
+
+        // Every file name seen, indexed by file id; replaced, never changed, when a name is added
+        private static volatile String[] fileNames = new String[0];
+        private static final Map<String, Integer> fileIds = new HashMap<>();
+
+        private String word; // set again by readObject
+
+        // The files this word is in, in the order first seen, as file ids
+        // with the info for each. Most words are in only a few files, so
+        // they are searched linearly, newest first.
+        private int[] fileIdOf = new int[1];
+        private FileInfo[] infoOf = new FileInfo[1];
+        private int fileCount;
+
+        /**
+         * Stores an entry as its word, then for each file the file name as a
+         * symbol, so each name is spelled out once per repository file, and
+         * the lines as varint deltas from the line before. The word comes first
+         * and is the key a mapped repository is searched by.
+         */
+        public static final KeyedEntryCodec<WordEntry> CODEC = new KeyedEntryCodec<WordEntry>() {
+            @Override
+            public String keyOf(WordEntry entry) {
+                return entry.word;
+            }
 
-        // filename -> info about that word in that file
-        private final Map<String, FileInfo> files = new LinkedHashMap<>();
+            @Override
+            public void write(WordEntry entry, EntryOutput out) throws IOException {
+                out.writeString(entry.word);
+                out.writeVarInt(entry.fileCount);
+                String[] names = fileNames;
+                for (int i = 0; i < entry.fileCount; i++) {
+                    out.writeSymbol(names[entry.fileIdOf[i]]);
+                    // FileInfo already holds the lines in this encoding
+                    FileInfo info = entry.infoOf[i];
+                    out.writeVarInt(info.frequency);
+                    out.writeBytes(info.deltas, 0, info.length);
+                }
+            }
+
+            @Override
+            public WordEntry read(EntryInput in) throws IOException {
+                WordEntry entry = new WordEntry(in.readString());
+                for (int files = in.readVarInt(); files > 0; files--) {
+                    FileInfo info = entry.infoFor(fileId(in.readSymbol()));
+                    int line = 0;
+                    for (int lines = in.readVarInt(); lines > 0; lines--) {
+                        line += in.readSignedVarInt();
+                        info.addLine(line);
+                    }
+                }
+                return entry;
+            }
+        };
 
         public WordEntry(String word) {
             this.word = word;
         }
 
+        /**
+         * Returns the id of a file name, the same for the whole run.
+         */
+        public static synchronized int fileId(String filename) {
+            Integer id = fileIds.get(filename);
+            if (id == null) {
+                id = fileNames.length;
+                String[] names = Arrays.copyOf(fileNames, id + 1);
+                names[id] = filename;
+                fileNames = names;
+                fileIds.put(filename, id);
+            }
+            return id;
+        }
+
         public String getWord() {
             return word;
         }
 
-        public Map<String, FileInfo> getFiles() {
-            return files;
+        /**
+         * @return the number of files this word is in
+         */
+        public int getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * @param index from 0 to getFileCount() - 1, in the order the files were first seen
+         */
+        public String getFileName(int index) {
+            return fileNames[fileIdOf[index]];
+        }
+
+        /**
+         * @param index from 0 to getFileCount() - 1, in the order the files were first seen
+         * @return the file's id, as returned by fileId
+         */
+        public int getFileId(int index) {
+            return fileIdOf[index];
+        }
+
+        /**
+         * @param index from 0 to getFileCount() - 1, in the order the files were first seen
+         */
+        public FileInfo getFileInfo(int index) {
+            return infoOf[index];
+        }
+
+        /**
+         * @return the info for the named file, or null if the word is not in it
+         */
+        public FileInfo getFileInfo(String filename) {
+            for (int i = fileCount - 1; i >= 0; i--) {
+                if (getFileName(i).equals(filename)) return infoOf[i];
+            }
+            return null;
         }
 
         public void addOccurrence(String filename, int lineNumber) {
-            FileInfo info = files.computeIfAbsent(filename, f -> new FileInfo());
-            info.addLine(lineNumber);
+            addOccurrence(fileId(filename), lineNumber);
+        }
+
+        public void addOccurrence(int fileId, int lineNumber) {
+            infoFor(fileId).addLine(lineNumber);
+        }
+
+        /**
+         * Appends other's occurrences to this entry, file by file, and returns
+         * this entry. Used as the combiner when merging trees of the same word.
+         */
+        public WordEntry mergeFrom(WordEntry other) {
+            for (int i = 0; i < other.fileCount; i++) {
+                infoFor(other.fileIdOf[i]).addAll(other.infoOf[i]);
+            }
+            return this;
         }
 
         public int getTotalFrequency() {
             int total = 0;
-            for (FileInfo fi : files.values()) total += fi.getFrequency();
+            for (int i = 0; i < fileCount; i++) total += infoOf[i].getFrequency();
             return total;
         }
 
+        private int indexOf(int fileId) {
+            for (int i = fileCount - 1; i >= 0; i--) {
+                if (fileIdOf[i] == fileId) return i;
+            }
+            return -1;
+        }
+
+        // Finds the file's info, adding an empty one after the others if there is none.
+        private FileInfo infoFor(int fileId) {
+            int index = indexOf(fileId);
+            if (index >= 0) return infoOf[index];
+
+            if (fileCount == fileIdOf.length) {
+                fileIdOf = Arrays.copyOf(fileIdOf, fileCount * 2);
+                infoOf = Arrays.copyOf(infoOf, fileCount * 2);
+            }
+            FileInfo info = new FileInfo();
+            fileIdOf[fileCount] = fileId;
+            infoOf[fileCount++] = info;
+            return info;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            Map<String, FileInfo> files = new LinkedHashMap<>();
+            for (int i = 0; i < fileCount; i++) files.put(getFileName(i), infoOf[i]);
+            ObjectOutputStream.PutField fields = out.putFields();
+            fields.put("word", word);
+            fields.put("files", files);
+            out.writeFields();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            ObjectInputStream.GetField fields = in.readFields();
+            word = (String) fields.get("word", null);
+            fileIdOf = new int[1];
+            infoOf = new FileInfo[1];
+            Map<String, FileInfo> files = (Map<String, FileInfo>) fields.get("files", null);
+            if (files != null) {
+                for (Map.Entry<String, FileInfo> fe : files.entrySet()) {
+                    infoFor(fileId(fe.getKey())).addAll(fe.getValue());
+                }
+            }
+        }
+
         @Override
         public int compareTo(WordEntry other) {
             return this.word.compareTo(other.word);
         }
 
+        // Orders a word against an entry as String.compareTo would; the
+        // tokenizer's current word needs no probe entry or String.
+        public static int compareWord(CharSequence word, WordEntry entry) {
+            if (word instanceof WordTokenizer) return ((WordTokenizer) word).compareTo(entry.word);
+            return CharSequence.compare(word, entry.word);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (!(o instanceof WordEntry)) return false;
@@ -66,93 +254,323 @@ public class WordTracker {
         }
     }
 
+    /**
+     * The lines a word is on in one file, in the order they were added. They
+     * are kept as zigzag varint deltas from the line before, the first from
+     * 0, so a line usually takes one byte instead of a boxed Integer.
+     */
     public static class FileInfo implements Serializable {
         private static final long serialVersionUID = 1L;
 
-        private final List<Integer> lines = new ArrayList<>();
+        // Fields of the list-based form, which serialized data still uses
+        private static final ObjectStreamField[] serialPersistentFields = {
+                new ObjectStreamField("lines", List.class),
+                new ObjectStreamField("frequency", int.class) };
+
+        private static final byte[] NO_LINES = new byte[0];
+
+        private byte[] deltas = NO_LINES;
+        private int length;
+        private int last;
         private int frequency = 0;
 
         public void addLine(int lineNumber) {
             // Keep duplicates if word appears multiple times on same line (frequency matters).
-            lines.add(lineNumber);
+            if (deltas.length - length < 5) {
+                deltas = Arrays.copyOf(deltas, Math.max(8, deltas.length * 2));
+            }
+            length = writeDelta(deltas, length, lineNumber - last);
+            last = lineNumber;
             frequency++;
         }
 
-        public List<Integer> getLines() {
+        // Renumbers lines scanned relative to the start of a chunk. Only the
+        // first delta, which is from 0, changes.
+        public void shiftLines(int delta) {
+            if (frequency == 0) return;
+            int firstLength = deltaLength(deltas, 0);
+            byte[] first = new byte[5];
+            int newLength = writeDelta(first, 0, readDelta(deltas, 0) + delta);
+
+            byte[] shifted = newLength == firstLength ? deltas : new byte[length - firstLength + newLength + 5];
+            System.arraycopy(deltas, firstLength, shifted, newLength, length - firstLength);
+            System.arraycopy(first, 0, shifted, 0, newLength);
+            deltas = shifted;
+            length += newLength - firstLength;
+            last += delta;
+        }
+
+        public void addAll(FileInfo other) {
+            if (other.frequency == 0) return;
+            int firstLength = deltaLength(other.deltas, 0);
+            int needed = length + 5 + other.length - firstLength;
+            if (deltas.length < needed) {
+                deltas = Arrays.copyOf(deltas, Math.max(needed, deltas.length * 2));
+            }
+            // Other's first delta is from 0, so it is redone from this info's last line
+            length = writeDelta(deltas, length, readDelta(other.deltas, 0) - last);
+            System.arraycopy(other.deltas, firstLength, deltas, length, other.length - firstLength);
+            length += other.length - firstLength;
+            last = other.last;
+            frequency += other.frequency;
+        }
+
+        /**
+         * @return a new array of the lines in the order they were added
+         */
+        public int[] getLines() {
+            return getLines(new int[frequency]);
+        }
+
+        /**
+         * Decodes the lines into the given array if it is long enough, so one
+         * array can be reused for every file.
+         *
+         * @return lines, or a new array if it is too short; the first
+         *         getFrequency() elements are the lines
+         */
+        public int[] getLines(int[] lines) {
+            if (lines.length < frequency) {
+                lines = new int[Math.max(frequency, lines.length * 2)];
+            }
+            int line = 0;
+            for (int i = 0, position = 0; i < frequency; i++) {
+                line += readDelta(deltas, position);
+                position += deltaLength(deltas, position);
+                lines[i] = line;
+            }
             return lines;
         }
 
         public int getFrequency() {
             return frequency;
         }
+
+        // Writes value as a zigzag varint, as EntryOutput.writeSignedVarInt does.
+        private static int writeDelta(byte[] bytes, int position, int value) {
+            int zigzag = (value << 1) ^ (value >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                bytes[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes[position++] = (byte) zigzag;
+            return position;
+        }
+
+        private static int readDelta(byte[] bytes, int position) {
+            int zigzag = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                zigzag |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private static int deltaLength(byte[] bytes, int position) {
+            int start = position;
+            while (bytes[position++] < 0) {
+                // continuation byte
+            }
+            return position - start;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            List<Integer> lines = new ArrayList<>(frequency);
+            for (int line : getLines()) lines.add(line);
+            ObjectOutputStream.PutField fields = out.putFields();
+            fields.put("lines", lines);
+            fields.put("frequency", frequency);
+            out.writeFields();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            ObjectInputStream.GetField fields = in.readFields();
+            deltas = NO_LINES;
+            List<Integer> lines = (List<Integer>) fields.get("lines", null);
+            if (lines != null) {
+                for (int line : lines) addLine(line);
+            }
+        }
     }
 
+    // Files of at least two chunks of this size are split and scanned in parallel.
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+
     // -----------------------------
     // Main
     // -----------------------------
     public static void main(String[] args) {
+        if (args.length >= 2 && args[0].equals("-q")) {
+            runQuery(args);
+            return;
+        }
         if (args.length < 2) {
             printUsageAndExit();
             return;
         }
 
-        String inputPath = args[0];
-        String mode = args[1]; // -pf or -pl or -po
-        String outputPath = parseOptionalOutputPath(args); // may be null
+        // Every argument before the mode is an input file or directory
+        int modeIndex = 0;
+        while (modeIndex < args.length && !args[modeIndex].startsWith("-")) modeIndex++;
+        if (modeIndex == 0 || modeIndex == args.length) {
+            printUsageAndExit();
+            return;
+        }
+
+        List<String> inputPaths = Arrays.asList(args).subList(0, modeIndex);
+        String mode = args[modeIndex]; // -pf or -pl or -po
+        String outputPath = parseOptionalOutputPath(args, modeIndex + 1); // may be null
+        String indexName = parseIndexOption(args, modeIndex + 1);
 
         if (!mode.equals("-pf") && !mode.equals("-pl") && !mode.equals("-po")) {
             System.out.println("Invalid option: " + mode);
             printUsageAndExit();
             return;
         }
+        Supplier<WordIndex<WordEntry>> newIndex = indexFactory(indexName);
+        if (newIndex == null) {
+            System.out.println("Invalid index: " + indexName);
+            printUsageAndExit();
+            return;
+        }
 
-        // 1) Load repository.ser if it exists
-        BSTree<WordEntry> tree = RepositoryManager.loadRepository();
-        if (tree == null) tree = new BSTree<>();
-
-        // 2) Scan input file and update tree
-        File inputFile = new File(inputPath);
-        if (!inputFile.exists() || !inputFile.isFile()) {
-            System.out.println("Input file not found: " + inputPath);
+        // 1) Load repository.ser and replay the journal of later runs, if they exist
+        // An unreadable repository stops the run, so it is never replaced by an empty one
+        BSTree<WordEntry> tree;
+        try {
+            tree = RepositoryManager.loadRepository(WordEntry.CODEC, WordEntry::mergeFrom);
+        } catch (IOException e) {
+            System.out.println("Error loading repository: " + e.getMessage());
             return;
         }
+        if (tree == null) tree = new BSTree<>(true); // balanced: sorted vocabularies must not degenerate
+        else if (!tree.isBalanced()) { // saved without balancing by an earlier version
+            tree = BSTree.fromSorted(tree.inorderIterator(), tree.size(), true);
+        }
+
+        // 2) Scan input files and update tree
+        List<InputFile> inputFiles = new ArrayList<>();
+        for (String inputPath : inputPaths) {
+            File input = new File(inputPath);
+            if (!input.exists()) {
+                System.out.println("Input file not found: " + inputPath);
+                return;
+            }
+            try {
+                collectInputFiles(input, inputFiles);
+            } catch (IOException e) {
+                System.out.println("Error reading input directory: " + e.getMessage());
+                return;
+            }
+        }
+        inputFiles = distinctInputFiles(inputFiles); // a file given twice is scanned once
 
+        // This run's occurrences are scanned into their own tree, which is all that gets saved
+        BSTree<WordEntry> delta;
         try {
-            scanFileIntoTree(inputFile, tree);
+            delta = scanFiles(inputFiles, newIndex);
         } catch (IOException e) {
             System.out.println("Error reading input file: " + e.getMessage());
             return;
         }
 
-        // 3) Produce report (console or file)
+        // 3) Append the change to the journal before it joins the repository tree
+        boolean saved = false;
+        if (!delta.isEmpty()) {
+            try {
+                RepositoryManager.appendToRepository(delta, WordEntry.CODEC);
+                saved = true;
+            } catch (IOException e) {
+                System.out.println("Error saving repository: " + e.getMessage());
+            }
+        }
+        tree = mergeChanges(tree, delta);
+
+        // Rewrite repository.ser in the background while the report is written
+        if (saved && RepositoryManager.needsCompaction()) {
+            try {
+                RepositoryManager.compactInBackground(tree.snapshot(), WordEntry.CODEC);
+            } catch (IOException e) {
+                System.out.println("Error saving repository: " + e.getMessage());
+            }
+        }
+
+        // 4) Produce report (console or file)
         try {
             writeReport(tree, mode, outputPath);
         } catch (IOException e) {
             System.out.println("Error writing report: " + e.getMessage());
         }
+    }
+
+    /**
+     * Adds a run's entries to the repository tree. A change much smaller than
+     * the tree is added entry by entry in O(m log n); a larger one is merged
+     * in a single O(n + m) pass. Either way entries already in the tree take
+     * the new occurrences and the change's own entries are left as they are.
+     */
+    private static BSTree<WordEntry> mergeChanges(BSTree<WordEntry> tree, BSTree<WordEntry> delta) {
+        if (delta.size() > tree.size() / 8) {
+            return BSTree.merge(tree, delta, WordEntry::mergeFrom);
+        }
 
-        // 4) Save repository.ser
-        try {
-            RepositoryManager.saveRepository(tree);
+        Iterator<WordEntry> it = delta.inorderIterator();
+        while (it.hasNext()) {
+            WordEntry entry = it.next();
+            WordEntry stored = tree.computeIfAbsent(entry, WordEntry::compareTo, e -> e).getElement();
+            if (stored != entry) stored.mergeFrom(entry);
+        }
+        return tree;
+    }
+
+    /**
+     * Prints the entries of the words given after -q straight from the saved
+     * repository, without scanning anything. Each word is looked up in the
+     * memory-mapped repository.idx, so the tree is never loaded.
+     */
+    private static void runQuery(String[] args) {
+        int modeIndex = 1;
+        while (modeIndex < args.length && !args[modeIndex].startsWith("-")) modeIndex++;
+        String mode = modeIndex < args.length ? args[modeIndex] : "-po";
+        if (modeIndex == 1 || modeIndex + 1 < args.length
+                || (!mode.equals("-pf") && !mode.equals("-pl") && !mode.equals("-po"))) {
+            printUsageAndExit();
+            return;
+        }
+
+        try (ReportWriter writer = new ReportWriter(System.out, false)) {
+            for (int i = 1; i < modeIndex; i++) {
+                String word = args[i].toLowerCase(Locale.ROOT);
+                WordEntry entry = RepositoryManager.lookup(word, WordEntry.CODEC, WordEntry::mergeFrom);
+                if (entry == null) {
+                    writer.writeNotFound(word);
+                } else {
+                    writer.writeEntry(entry, mode);
+                }
+            }
         } catch (IOException e) {
-            System.out.println("Error saving repository: " + e.getMessage());
+            System.out.println("Error reading repository: " + e.getMessage());
         }
     }
 
     private static void printUsageAndExit() {
         System.out.println("Usage:");
-        System.out.println("  java -jar WordTracker.jar <input.txt> -pf|-pl|-po [-f<output.txt>]");
+        System.out.println("  java -jar WordTracker.jar <input.txt|directory>... -pf|-pl|-po [-f<output.txt>] [-index=hash|bst|radix]");
+        System.out.println("  java -jar WordTracker.jar -q <word>... [-pf|-pl|-po]");
         System.out.println("Examples:");
         System.out.println("  java -jar WordTracker.jar test1.txt -pf");
         System.out.println("  java -jar WordTracker.jar test2.txt -pl");
         System.out.println("  java -jar WordTracker.jar test3.txt -po -fresults.txt");
+        System.out.println("  java -jar WordTracker.jar test1.txt test2.txt res/ -pl");
+        System.out.println("  java -jar WordTracker.jar res/ -po -index=radix");
+        System.out.println("  java -jar WordTracker.jar -q kitty hello -pl");
     }
 
-    private static String parseOptionalOutputPath(String[] args) {
+    private static String parseOptionalOutputPath(String[] args, int start) {
         // Spec shows -f<output.txt> (like -fresults.txt). We'll support both "-fresults.txt" and "-f results.txt".
-        if (args.length < 3) return null;
-
-        for (int i = 2; i < args.length; i++) {
+        for (int i = start; i < args.length; i++) {
             String a = args[i];
             if (a.startsWith("-f") && a.length() > 2) {
                 return a.substring(2); // "-fresults.txt" -> "results.txt"
@@ -164,100 +582,322 @@ public class WordTracker {
         return null;
     }
 
-    private static void scanFileIntoTree(File inputFile, BSTree<WordEntry> tree) throws IOException {
-        String filename = inputFile.getName();
+    // The structure words are counted in while scanning: hash (the default), bst or radix.
+    private static String parseIndexOption(String[] args, int start) {
+        for (int i = start; i < args.length; i++) {
+            if (args[i].startsWith("-index=")) return args[i].substring("-index=".length());
+        }
+        return "hash";
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(inputFile))) {
-            String line;
-            int lineNumber = 1;
+    /**
+     * @param name hash, bst or radix, as given with -index=
+     * @return a supplier of new, empty indexes of that kind, or null for an
+     *         unknown name
+     */
+    public static Supplier<WordIndex<WordEntry>> indexFactory(String name) {
+        switch (name) {
+            case "bst":
+                // balanced: sorted vocabularies must not degenerate
+                return () -> new TreeWordIndex<>(new BSTree<>(true), WordEntry::compareWord, WordEntry::new);
+            case "radix":
+                return RadixTree::new;
+            case "hash":
+                return () -> new HashedWordIndex<>(WordEntry::new);
+            default:
+                return null;
+        }
+    }
 
-            while ((line = br.readLine()) != null) {
-                // Extract "words" (keeps letters/digits and apostrophes).
-                // You can adjust the regex if your group decides different rules.
-                java.util.regex.Matcher m = java.util.regex.Pattern
-                        .compile("[A-Za-z0-9']+")
-                        .matcher(line);
+    /**
+     * Returns the words scanned into an index as a balanced tree, which is
+     * what the repository and the report take. A BSTree index is already
+     * one; any other is walked in order and bulk-built in O(n).
+     */
+    private static BSTree<WordEntry> toTree(WordIndex<WordEntry> index) {
+        if (index instanceof TreeWordIndex) {
+            return ((TreeWordIndex<WordEntry>) index).getTree();
+        }
+        if (index instanceof HashedWordIndex) {
+            return ((HashedWordIndex<WordEntry>) index).getTree();
+        }
+        return BSTree.fromSorted(index.inorderIterator(), index.size(), true);
+    }
 
-                while (m.find()) {
-                    String word = m.group().toLowerCase(Locale.ROOT);
+    /**
+     * A file to scan, by its canonical path, and the name its occurrences are
+     * recorded under: that path relative to the working directory, such as
+     * docs/a/x.txt, whether the file was given itself or found in a
+     * directory. Files of the same name in different folders are kept apart,
+     * and a file reached twice gets the same name both times.
+     */
+    static final class InputFile {
+        final File file;
+        final String name;
+
+        InputFile(File file, String name) {
+            this.file = file;
+            this.name = name;
+        }
+    }
 
-                    // Find or create WordEntry in BST
-                    WordEntry key = new WordEntry(word);
-                    BSTreeNode<WordEntry> node = tree.search(key);
+    // Adds a file, or every regular file under a directory in path order.
+    static void collectInputFiles(File input, List<InputFile> inputFiles) throws IOException {
+        collectInputFiles(new File("").getAbsoluteFile(), input, inputFiles);
+    }
 
-                    if (node == null) {
-                        // not present -> add then search to update
-                        tree.add(key);
-                        node = tree.search(key);
-                    }
+    // As above, with names relative to directory instead of the working directory.
+    static void collectInputFiles(File directory, File input, List<InputFile> inputFiles) throws IOException {
+        Path base = directory.getCanonicalFile().toPath();
+        if (input.isFile()) {
+            inputFiles.add(inputFile(base, input));
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(input.toPath())) {
+            files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path path : files) {
+            inputFiles.add(inputFile(base, path.toFile()));
+        }
+    }
 
-                    // Update the stored entry
-                    if (node != null) {
-                        node.getElement().addOccurrence(filename, lineNumber);
-                    }
+    private static InputFile inputFile(Path base, File file) throws IOException {
+        File canonical = file.getCanonicalFile();
+        Path path = canonical.toPath();
+        // A file on another drive has no path relative to base
+        String name = path.getRoot().equals(base.getRoot()) ? base.relativize(path).toString() : path.toString();
+        return new InputFile(canonical, name.replace(File.separatorChar, '/'));
+    }
+
+    // Keeps the first of the inputs that are the same file.
+    static List<InputFile> distinctInputFiles(List<InputFile> inputFiles) {
+        Map<File, InputFile> distinct = new LinkedHashMap<>();
+        for (InputFile input : inputFiles) {
+            distinct.putIfAbsent(input.file, input);
+        }
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * Scans the files into a new tree. A single small file is scanned on
+     * this thread; anything more is scanned in parallel.
+     */
+    static BSTree<WordEntry> scanFiles(List<InputFile> inputFiles, Supplier<WordIndex<WordEntry>> newIndex)
+            throws IOException {
+        if (inputFiles.isEmpty()) {
+            return new BSTree<>(true);
+        }
+        if (inputFiles.size() == 1 && inputFiles.get(0).file.length() < 2 * MIN_CHUNK_BYTES) {
+            WordIndex<WordEntry> index = newIndex.get();
+            scanFileIntoIndex(inputFiles.get(0).file, inputFiles.get(0).name, index);
+            return toTree(index);
+        }
+        return scanFilesInParallel(inputFiles, newIndex);
+    }
+
+    /**
+     * Scans files concurrently on the common ForkJoinPool. Each file is
+     * scanned into its own partial tree (large files by several workers, see
+     * scanFile), and partial trees are
+     * merged pairwise in input order as the tasks join, so the result is the
+     * same as scanning the files one after another.
+     */
+    private static BSTree<WordEntry> scanFilesInParallel(List<InputFile> inputFiles,
+            Supplier<WordIndex<WordEntry>> newIndex) throws IOException {
+        try {
+            return ForkJoinPool.commonPool().invoke(new ScanTask(inputFiles, newIndex));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ScanTask extends RecursiveTask<BSTree<WordEntry>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<InputFile> files;
+        private final Supplier<WordIndex<WordEntry>> newIndex;
+
+        ScanTask(List<InputFile> files, Supplier<WordIndex<WordEntry>> newIndex) {
+            this.files = files;
+            this.newIndex = newIndex;
+        }
+
+        @Override
+        protected BSTree<WordEntry> compute() {
+            if (files.size() == 1) {
+                try {
+                    File file = files.get(0).file;
+                    return scanFile(file, files.get(0).name, chunkCount(file.length()), newIndex);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-                lineNumber++;
             }
+
+            int mid = files.size() / 2;
+            ScanTask right = new ScanTask(files.subList(mid, files.size()), newIndex);
+            right.fork();
+            BSTree<WordEntry> left = new ScanTask(files.subList(0, mid), newIndex).compute();
+            return BSTree.merge(left, right.join(), WordEntry::mergeFrom);
         }
     }
 
-    private static void writeReport(BSTree<WordEntry> tree, String mode, String outputPath) throws IOException {
-        Writer writer = null;
-        try {
-            if (outputPath != null && !outputPath.isBlank()) {
-                writer = new BufferedWriter(new FileWriter(outputPath));
-            } else {
-                writer = new OutputStreamWriter(System.out);
+    /**
+     * Scans one file into a new tree. A large file is cut at line starts into
+     * byte ranges that are scanned in parallel, each numbering its lines from
+     * 1. Once every chunk is done, each chunk's lines are shifted by the line
+     * breaks counted in the chunks before it, and the chunk trees are merged
+     * in file order.
+     *
+     * @param count how many byte ranges to cut the file into
+     */
+    static BSTree<WordEntry> scanFile(File inputFile, String filename, int count,
+            Supplier<WordIndex<WordEntry>> newIndex) throws IOException {
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, count);
+            List<ChunkTask> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                chunks.add(new ChunkTask(channel, filename, bounds[i], bounds[i + 1], newIndex));
+            }
+            try {
+                ForkJoinTask.invokeAll(chunks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
 
-            // Alphabetical order: inorder iterator
-            Iterator<WordEntry> it = tree.inorderIterator();
+            List<BSTree<WordEntry>> parts = new ArrayList<>();
+            int linesBefore = 0;
+            for (ChunkTask chunk : chunks) {
+                BSTree<WordEntry> part = chunk.join();
+                if (linesBefore > 0) {
+                    Iterator<WordEntry> it = part.inorderIterator();
+                    while (it.hasNext()) it.next().getFileInfo(filename).shiftLines(linesBefore);
+                }
+                parts.add(part);
+                linesBefore += chunk.lineBreaks;
+            }
 
-            while (it.hasNext()) {
-                WordEntry entry = it.next();
-
-                if (mode.equals("-pf")) {
-                    // Print word + file list
-                    writer.write(entry.getWord() + " -> files: ");
-                    writer.write(String.join(", ", entry.getFiles().keySet()));
-                    writer.write(System.lineSeparator());
-                } else if (mode.equals("-pl")) {
-                    // Print word + files + line numbers
-                    writer.write(entry.getWord() + " -> ");
-                    writer.write(formatFilesAndLines(entry, false));
-                    writer.write(System.lineSeparator());
-                } else { // -po
-                    // Print word + files + line numbers + frequency
-                    writer.write(entry.getWord() + " -> ");
-                    writer.write(formatFilesAndLines(entry, true));
-                    writer.write(" | totalFreq=" + entry.getTotalFrequency());
-                    writer.write(System.lineSeparator());
+            // Merge neighbours pairwise so each entry is copied O(log chunks) times
+            while (parts.size() > 1) {
+                List<BSTree<WordEntry>> merged = new ArrayList<>();
+                for (int i = 0; i < parts.size(); i += 2) {
+                    merged.add(i + 1 < parts.size()
+                            ? BSTree.merge(parts.get(i), parts.get(i + 1), WordEntry::mergeFrom)
+                            : parts.get(i));
                 }
+                parts = merged;
             }
+            return parts.get(0);
+        }
+    }
+
+    // A few chunks per worker, each at least MIN_CHUNK_BYTES long.
+    private static int chunkCount(long size) {
+        return (int) Math.max(1, Math.min(size / MIN_CHUNK_BYTES, ForkJoinPool.getCommonPoolParallelism() * 4L));
+    }
 
-            writer.flush();
-        } finally {
-            // Don’t close System.out
-            if (writer != null && !(writer instanceof OutputStreamWriter)) {
-                writer.close();
+    // Splits the file into count about equal byte ranges that each start a line.
+    static long[] chunkBounds(FileChannel channel, int count) throws IOException {
+        long size = channel.size();
+        long[] bounds = new long[count + 1];
+        bounds[count] = size;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < count; i++) {
+            long position = Math.max(size / count * i, bounds[i - 1]);
+            bounds[i] = size;
+
+            // Move forward to just past the next newline
+            search:
+            while (position < size) {
+                probe.clear();
+                int read = channel.read(probe, position);
+                if (read <= 0) break;
+                for (int j = 0; j < read; j++) {
+                    if (probe.get(j) == '\n') {
+                        bounds[i] = position + j + 1;
+                        break search;
+                    }
+                }
+                position += read;
             }
         }
+        return bounds;
     }
 
-    private static String formatFilesAndLines(WordEntry entry, boolean includeFreq) {
-        StringBuilder sb = new StringBuilder();
-        boolean firstFile = true;
+    private static class ChunkTask extends RecursiveTask<BSTree<WordEntry>> {
+        private static final long serialVersionUID = 1L;
 
-        for (Map.Entry<String, FileInfo> fe : entry.getFiles().entrySet()) {
-            if (!firstFile) sb.append(" ; ");
-            firstFile = false;
+        private final FileChannel channel;
+        private final String filename;
+        private final long start;
+        private final long end;
+        private final Supplier<WordIndex<WordEntry>> newIndex;
+        private int lineBreaks; // read after join()
+
+        ChunkTask(FileChannel channel, String filename, long start, long end,
+                Supplier<WordIndex<WordEntry>> newIndex) {
+            this.channel = channel;
+            this.filename = filename;
+            this.start = start;
+            this.end = end;
+            this.newIndex = newIndex;
+        }
 
-            String file = fe.getKey();
-            FileInfo info = fe.getValue();
+        @Override
+        protected BSTree<WordEntry> compute() {
+            WordIndex<WordEntry> partial = newIndex.get();
+            WordTokenizer tokens = new WordTokenizer(channel, start, end, true);
+            try {
+                scanTokens(tokens, filename, partial);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lineBreaks = tokens.lineBreaks();
+            return toTree(partial);
+        }
+    }
+
+    /**
+     * Scans one whole file on this thread into an index, as a run does for
+     * a single small input.
+     *
+     * @param inputFile the file to read
+     * @param filename the name its occurrences are recorded under
+     * @param index the index to add the words to
+     * @throws IOException if the file cannot be read
+     */
+    public static void scanFileIntoIndex(File inputFile, String filename, WordIndex<WordEntry> index)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            // Extract "words" (keeps letters/digits and apostrophes), already lowercased.
+            scanTokens(new WordTokenizer(channel, true), filename, index);
+        }
+    }
 
-            sb.append(file).append(" lines=").append(info.getLines());
-            if (includeFreq) sb.append(" freq=").append(info.getFrequency());
+    private static void scanTokens(WordTokenizer tokens, String filename, WordIndex<WordEntry> index)
+            throws IOException {
+        int fileId = WordEntry.fileId(filename);
+        while (tokens.next()) {
+            // Find or create WordEntry in the index with a single lookup;
+            // the word only becomes a String when it is new
+            WordEntry entry = index.computeIfAbsent(tokens, token -> new WordEntry(token.toString()));
+
+            // Update the stored entry
+            entry.addOccurrence(fileId, tokens.lineNumber());
+        }
+    }
+
+    private static void writeReport(BSTree<WordEntry> tree, String mode, String outputPath) throws IOException {
+        boolean toFile = outputPath != null && !outputPath.isBlank();
+        try (ReportWriter writer = toFile
+                ? new ReportWriter(new FileOutputStream(outputPath), true)
+                : new ReportWriter(System.out, false)) { // Don’t close System.out
+            // Alphabetical order: inorder iterator
+            Iterator<WordEntry> it = tree.inorderIterator();
+
+            while (it.hasNext()) {
+                writer.writeEntry(it.next(), mode);
+            }
         }
-        return sb.toString();
     }
 }
@@ -3,25 +3,233 @@ package implementations;
 import utilities.BSTreeADT;
 import utilities.Iterator;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntBiFunction;
 
 public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>
 {
+    // Pinned to the value of the original class so repository.ser files it
+    // serialized still load.
+    private static final long serialVersionUID = -655615512180781273L;
+
     private BSTreeNode<E> root;
     private int size;
-    private BSTreeNode<E> removed;
+
+    // Structural modification counter checked by the fail-fast iterators.
+    private transient int modCount;
+
+    // When true the tree rebalances itself (AVL) on every add and remove,
+    // keeping the height O(log n) even for sorted input.
+    private final boolean balanced;
+
+    // Nodes of older epochs may be shared with snapshots and are copied
+    // before they are changed; snapshot() starts a new epoch. A deserialized
+    // tree shares nothing, so both start over.
+    private transient int epoch;
+
+    // Set on trees returned by snapshot(), which reject every change.
+    private transient boolean readOnly;
 
     public BSTree(E item) {
+        this(item, false);
+    }
+
+    public BSTree() {
+        this(false);
+    }
+
+    public BSTree(E item, boolean balanced) {
+        this.balanced = balanced;
         size = 1;
         root = new BSTreeNode<E>(item);
     }
 
-    public BSTree() {
+    public BSTree(boolean balanced) {
+        this.balanced = balanced;
         size = 0;
         root = null;
     }
 
+    /**
+     * @return true if this tree keeps itself height-balanced (AVL)
+     */
+    public boolean isBalanced() {
+        return balanced;
+    }
+
+    /**
+     * Returns an immutable view of the tree as it is now, in O(1). The view
+     * shares every node with this tree; afterwards this tree copies a node
+     * before changing it, so each add or remove copies only the O(log n) path
+     * it touches and the view never sees the change. The view can be iterated
+     * and searched from any thread with no locking while this tree keeps
+     * changing.
+     *
+     * The elements themselves are shared, not copied: changes made to an
+     * element's own state, or through the node setters, show in both.
+     *
+     * @return a read-only tree with the current contents; its mutators throw
+     *         UnsupportedOperationException
+     */
+    public BSTree<E> snapshot() {
+        BSTree<E> view = new BSTree<E>(balanced);
+        view.root = root;
+        view.size = size;
+        view.readOnly = true;
+        if (!readOnly) {
+            epoch++;
+        }
+        return view;
+    }
+
+    /**
+     * @return true if this tree is a snapshot view that cannot be changed
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Tree is a read-only snapshot");
+        }
+    }
+
+    /**
+     * @return node itself if this tree may change it, otherwise a copy of it
+     *         in the current epoch that the caller must link in its place
+     */
+    private BSTreeNode<E> own(BSTreeNode<E> node) {
+        if (node == null || node.epoch == epoch) {
+            return node;
+        }
+        BSTreeNode<E> copy = new BSTreeNode<E>(node.key);
+        copy.left = node.left;
+        copy.right = node.right;
+        copy.height = node.height;
+        copy.size = node.size;
+        copy.epoch = epoch;
+        return copy;
+    }
+
+    private BSTreeNode<E> newNode(E value) {
+        BSTreeNode<E> node = new BSTreeNode<E>(value);
+        node.epoch = epoch;
+        return node;
+    }
+
+    /**
+     * Builds a height-optimal tree from elements already in strictly
+     * ascending order, in O(n) and without comparing any elements. The order
+     * is trusted, not checked.
+     *
+     * @param sorted the elements in ascending order, without duplicates
+     * @param balanced whether the new tree keeps itself balanced afterwards
+     * @return a new tree holding the elements
+     * @throws NullPointerException if the array or any element is null
+     */
+    public static <E extends Comparable<? super E>> BSTree<E> fromSorted(E[] sorted, boolean balanced)
+            throws NullPointerException {
+        if (sorted == null) {
+            throw new NullPointerException("Array is null");
+        }
+        return fromSorted(sorted, 0, sorted.length, balanced);
+    }
+
+    /**
+     * Builds a height-optimal tree from the next count elements of an
+     * iterator that returns them in strictly ascending order, in O(n) and
+     * without comparing any elements. Nodes are created as the iterator is
+     * consumed, so no intermediate copy is made.
+     *
+     * @param sorted supplies the elements in ascending order, without duplicates
+     * @param count the number of elements to take from the iterator
+     * @param balanced whether the new tree keeps itself balanced afterwards
+     * @return a new tree holding the elements
+     * @throws NullPointerException if the iterator or any element is null
+     * @throws NoSuchElementException if the iterator has fewer than count
+     *         elements
+     */
+    public static <E extends Comparable<? super E>> BSTree<E> fromSorted(Iterator<? extends E> sorted, int count,
+            boolean balanced) throws NullPointerException, NoSuchElementException {
+        if (sorted == null) {
+            throw new NullPointerException("Iterator is null");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Count is negative: " + count);
+        }
+
+        BSTree<E> tree = new BSTree<E>(balanced);
+        tree.root = buildFrom(sorted, count);
+        tree.size = count;
+        return tree;
+    }
+
+    /**
+     * Merges two trees into a new height-optimal tree in O(n + m): both are
+     * walked in order side by side, then the merged run is bulk-built. The
+     * two trees are left unchanged; their elements are shared, not copied.
+     *
+     * @param first one tree to merge
+     * @param second the other tree to merge
+     * @param combiner given the elements from first and second that compare
+     *        equal, returns the single element to keep
+     * @return a new tree with every element of both, balanced if either input is
+     * @throws NullPointerException if any argument is null
+     */
+    public static <E extends Comparable<? super E>> BSTree<E> merge(BSTree<E> first, BSTree<E> second,
+            BinaryOperator<E> combiner) throws NullPointerException {
+        if (first == null || second == null || combiner == null) {
+            throw new NullPointerException("Argument is null");
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        E[] merged = (E[]) new Comparable[first.size + second.size];
+        int count = 0;
+        Iterator<E> a = first.inorderIterator();
+        Iterator<E> b = second.inorderIterator();
+        E nextA = a.hasNext() ? a.next() : null;
+        E nextB = b.hasNext() ? b.next() : null;
+
+        while (nextA != null && nextB != null) {
+            int cmp = nextA.compareTo(nextB);
+            if (cmp < 0) {
+                merged[count++] = nextA;
+                nextA = a.hasNext() ? a.next() : null;
+            } else if (cmp > 0) {
+                merged[count++] = nextB;
+                nextB = b.hasNext() ? b.next() : null;
+            } else {
+                merged[count++] = combiner.apply(nextA, nextB);
+                nextA = a.hasNext() ? a.next() : null;
+                nextB = b.hasNext() ? b.next() : null;
+            }
+        }
+        for (; nextA != null; nextA = a.hasNext() ? a.next() : null) {
+            merged[count++] = nextA;
+        }
+        for (; nextB != null; nextB = b.hasNext() ? b.next() : null) {
+            merged[count++] = nextB;
+        }
+
+        return fromSorted(merged, 0, count, first.balanced || second.balanced);
+    }
+
+    private static <E extends Comparable<? super E>> BSTree<E> fromSorted(E[] sorted, int from, int to,
+            boolean balanced) {
+        BSTree<E> tree = new BSTree<E>(balanced);
+        tree.root = buildFrom(sorted, from, to);
+        tree.size = to - from;
+        return tree;
+    }
+
     @Override
     public BSTreeNode<E> getRoot() throws NullPointerException {
         if (root == null) {
@@ -30,16 +238,14 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>
         return root;
     }
 
-    @Override
-    public int getHeight() {
-        return calculateHeight(root);
+    // Root without the empty check, for ConcurrentBSTree's lock-free reads.
+    BSTreeNode<E> root() {
+        return root;
     }
 
-    private int calculateHeight(BSTreeNode<E> node) {
-        if (node == null) {
-            return 0;
-        }
-        return Math.max(calculateHeight(node.left), calculateHeight(node.right)) + 1;
+    @Override
+    public int getHeight() {
+        return heightOf(root);
     }
 
     @Override
@@ -54,8 +260,10 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>
 
     @Override
     public void clear() {
+        checkWritable();
         root = null;
         size = 0;
+        modCount++;
     }
 
     @Override
@@ -74,193 +282,792 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>
         return find(root, entry);
     }
 
+    /**
+     * Finds the node whose element matches key in one descent, comparing the
+     * key directly against stored elements as computeIfAbsent does, so no
+     * probe element has to be built.
+     *
+     * @param <K> the type of the lookup key
+     * @param key the key to look up
+     * @param comparator orders key against stored elements consistently with
+     *        the elements' natural ordering
+     * @return the matching node, or null if there is none
+     * @throws NullPointerException if either argument is null
+     */
+    public <K> BSTreeNode<E> search(K key, ToIntBiFunction<? super K, ? super E> comparator)
+            throws NullPointerException {
+        if (key == null || comparator == null) {
+            throw new NullPointerException("Argument is null");
+        }
+
+        BSTreeNode<E> node = root;
+        while (node != null) {
+            int cmp = comparator.applyAsInt(key, node.getElement());
+
+            if (cmp == 0) {
+                return node;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
     private BSTreeNode<E> find(BSTreeNode<E> node, E value) {
-        if (node == null) {
-            return null;
+        while (node != null) {
+            int cmp = value.compareTo(node.getElement());
+
+            if (cmp == 0) {
+                return node;
+            }
+            node = cmp < 0 ? node.left : node.right;
         }
+        return null;
+    }
 
-        int cmp = value.compareTo(node.getElement());
+    @Override
+    public int rank(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        return countBelow(entry, false);
+    }
 
-        if (cmp == 0) {
-            return node;
-        } else if (cmp < 0) {
-            return find(node.left, value);
-        } else {
-            return find(node.right, value);
+    @Override
+    public BSTreeNode<E> select(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        BSTreeNode<E> node = root;
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
         }
     }
 
+    @Override
+    public int countRange(E low, E high) throws NullPointerException {
+        if (low == null || high == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        if (low.compareTo(high) > 0) {
+            return 0;
+        }
+        return countBelow(high, true) - countBelow(low, false);
+    }
+
+    /**
+     * Counts the elements smaller than value (or not greater, when inclusive)
+     * in a single descent, using the subtree sizes of the left children passed.
+     */
+    private int countBelow(E value, boolean inclusive) {
+        int count = 0;
+        BSTreeNode<E> node = root;
+
+        while (node != null) {
+            int cmp = value.compareTo(node.getElement());
+
+            if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                node = node.left;
+            } else {
+                count += sizeOf(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
     @Override
     public boolean add(E newEntry) throws NullPointerException {
         if (newEntry == null) {
             throw new NullPointerException("Entry is null");
         }
 
-        if (root == null) {
-            root = new BSTreeNode<E>(newEntry);
-            size++;
-            return true;
+        int before = size;
+        insert(newEntry);
+        return size > before;
+    }
+
+    /**
+     * Returns the node whose element matches key, creating and inserting the
+     * element with mappingFunction only when there is none. Lookups compare
+     * the key directly against stored elements, so a hit builds no element.
+     * Either way there is one root-to-leaf descent: a miss links the new
+     * element under the last node visited and retraces the path it recorded,
+     * rebalancing as add does.
+     *
+     * @param <K> the type of the lookup key, e.g. a String for word entries
+     * @param key the key to look up
+     * @param comparator orders key against stored elements consistently with
+     *        the elements' natural ordering
+     * @param mappingFunction builds the element to insert when key is absent
+     * @return the existing or newly inserted node
+     * @throws NullPointerException if any argument, or the mapped element, is
+     *         null
+     */
+    public <K> BSTreeNode<E> computeIfAbsent(K key, ToIntBiFunction<? super K, ? super E> comparator,
+            Function<? super K, ? extends E> mappingFunction) throws NullPointerException {
+        if (key == null || comparator == null || mappingFunction == null) {
+            throw new NullPointerException("Argument is null");
         }
 
-        if (insert(root, newEntry)) {
-            size++;
-            return true;
+        BSTreeNode<E>[] path = newPath();
+        int depth = 0;
+        int cmp = 0;
+        BSTreeNode<E> node = root;
+        while (node != null) {
+            cmp = comparator.applyAsInt(key, node.getElement());
+
+            if (cmp == 0) {
+                return node;
+            }
+            path = push(path, depth++, node);
+            node = cmp < 0 ? node.left : node.right;
         }
 
-        return false;
-    }
+        E value = mappingFunction.apply(key);
+        if (value == null) {
+            throw new NullPointerException("Mapped entry is null");
+        }
+        checkWritable();
 
-    private boolean insert(BSTreeNode<E> node, E value) {
-        int cmp = value.compareTo(node.getElement());
+        // Own the recorded path top-down, as every node on it is resized
+        for (int i = 0; i < depth; i++) {
+            BSTreeNode<E> owned = own(path[i]);
+            if (i == 0) {
+                root = owned;
+            } else if (path[i - 1].left == path[i]) {
+                path[i - 1].left = owned;
+            } else {
+                path[i - 1].right = owned;
+            }
+            path[i] = owned;
+        }
 
-        if (cmp == 0) {
-            return false; // duplicate
+        node = newNode(value);
+        if (depth == 0) {
+            root = node;
         } else if (cmp < 0) {
-            if (node.left == null) {
-                node.left = new BSTreeNode<E>(value);
-                return true;
-            }
-            return insert(node.left, value);
+            path[depth - 1].left = node;
         } else {
-            if (node.right == null) {
-                node.right = new BSTreeNode<E>(value);
-                return true;
+            path[depth - 1].right = node;
+        }
+        size++;
+        modCount++;
+        retrace(path, depth);
+        return node;
+    }
+
+    /**
+     * @return the node holding value, newly linked in unless an equal
+     *         element was already present
+     */
+    private BSTreeNode<E> insert(E value) {
+        checkWritable();
+        if (root == null) {
+            root = newNode(value);
+            size++;
+            modCount++;
+            return root;
+        }
+
+        // Every node on the way down is owned, as it may be relinked or resized
+        BSTreeNode<E>[] path = newPath();
+        int depth = 0;
+        BSTreeNode<E> node = root = own(root);
+
+        while (true) {
+            path = push(path, depth++, node);
+            int cmp = value.compareTo(node.getElement());
+
+            if (cmp == 0) {
+                return node; // duplicate
+            } else if (cmp < 0) {
+                if (node.left == null) {
+                    node = node.left = newNode(value);
+                    break;
+                }
+                node = node.left = own(node.left);
+            } else {
+                if (node.right == null) {
+                    node = node.right = newNode(value);
+                    break;
+                }
+                node = node.right = own(node.right);
             }
-            return insert(node.right, value);
         }
+
+        size++;
+        modCount++;
+        retrace(path, depth);
+        return node;
     }
 
     @Override
     public BSTreeNode<E> removeMin() {
+        checkWritable();
         if (root == null) {
             return null;
         }
 
-        removed = null;
-        root = removeSmallest(root);
-        return removed;
+        return removeSmallest();
     }
 
-    private BSTreeNode<E> removeSmallest(BSTreeNode<E> node) {
-        if (node.left == null) {
-            removed = node;
-            size--;
-            return node.right;
+    private BSTreeNode<E> removeSmallest() {
+        BSTreeNode<E>[] path = newPath();
+        int depth = 0;
+        BSTreeNode<E> node = root = own(root);
+
+        while (node.left != null) {
+            path = push(path, depth++, node);
+            node = node.left = own(node.left);
         }
 
-        node.left = removeSmallest(node.left);
+        if (depth == 0) {
+            root = node.right;
+        } else {
+            path[depth - 1].left = node.right;
+        }
+        size--;
+        modCount++;
+        retrace(path, depth);
         return node;
     }
 
     @Override
     public BSTreeNode<E> removeMax() {
+        checkWritable();
         if (root == null) {
             return null;
         }
 
-        removed = null;
-        root = removeLargest(root);
-        return removed;
+        return removeLargest();
     }
 
-    private BSTreeNode<E> removeLargest(BSTreeNode<E> node) {
-        if (node.right == null) {
-            removed = node;
-            size--;
-            return node.left;
+    private BSTreeNode<E> removeLargest() {
+        BSTreeNode<E>[] path = newPath();
+        int depth = 0;
+        BSTreeNode<E> node = root = own(root);
+
+        while (node.right != null) {
+            path = push(path, depth++, node);
+            node = node.right = own(node.right);
         }
 
-        node.right = removeLargest(node.right);
+        if (depth == 0) {
+            root = node.left;
+        } else {
+            path[depth - 1].right = node.left;
+        }
+        size--;
+        modCount++;
+        retrace(path, depth);
         return node;
     }
 
-    @Override
-    public Iterator<E> inorderIterator() {
-        ArrayList<E> iterator = new ArrayList<>();
-        inOrder(root, iterator);
+    /**
+     * Removes the given element from the tree, rebalancing on the way back up
+     * in balanced mode. A node with two children is replaced by its in-order
+     * successor node, so the node returned is the one that held the element.
+     *
+     * @param entry the element to remove
+     * @return the removed node, or null if the element is not in the tree
+     * @throws NullPointerException if the element being passed in is null
+     */
+    public BSTreeNode<E> remove(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        checkWritable();
 
-        return new Iterator<E>() {
-            private int index = 0;
+        BSTreeNode<E>[] path = newPath();
+        int depth = 0;
+        BSTreeNode<E> node = root = own(root);
 
-            @Override
-            public boolean hasNext() {
-                return index < iterator.size();
+        while (node != null) {
+            int cmp = entry.compareTo(node.getElement());
+            if (cmp == 0) {
+                break;
             }
+            path = push(path, depth++, node);
+            node = cmp < 0 ? (node.left = own(node.left)) : (node.right = own(node.right));
+        }
+        if (node == null) {
+            return null;
+        }
 
-            @Override
-            public E next() throws NoSuchElementException {
-                if (!hasNext()) {
-                    throw new NoSuchElementException("No next element");
-                }
-                return iterator.get(index++);
+        int parentDepth = depth;
+        BSTreeNode<E> replacement;
+        if (node.left == null || node.right == null) {
+            replacement = node.left != null ? node.left : node.right;
+        } else {
+            // Unlink the in-order successor and put it where node was. Its
+            // slot on the path takes node's place so retrace refreshes it too.
+            path = push(path, depth++, node);
+            BSTreeNode<E> successor = node.right = own(node.right);
+            while (successor.left != null) {
+                path = push(path, depth++, successor);
+                successor = successor.left = own(successor.left);
+            }
+
+            if (path[depth - 1] == node) {
+                node.right = successor.right;
+            } else {
+                path[depth - 1].left = successor.right;
             }
-        };
+            successor.left = node.left;
+            successor.right = node.right;
+            path[parentDepth] = successor;
+            replacement = successor;
+        }
+
+        if (parentDepth == 0) {
+            root = replacement;
+        } else if (path[parentDepth - 1].left == node) {
+            path[parentDepth - 1].left = replacement;
+        } else {
+            path[parentDepth - 1].right = replacement;
+        }
+        size--;
+        modCount++;
+        retrace(path, depth);
+        return node;
     }
 
-    private void inOrder(BSTreeNode<E> node, ArrayList<E> iterator) {
-        if (node == null) return;
-        inOrder(node.left, iterator);
-        iterator.add(node.getElement());
-        inOrder(node.right, iterator);
+    /**
+     * Removes every element matching the filter in one in-order pass, then
+     * rebuilds the survivors into a perfectly balanced tree. This is O(n) no
+     * matter how many elements go, where n separate removes would cost
+     * O(n log n).
+     *
+     * @param filter returns true for the elements to remove
+     * @return the number of elements removed
+     * @throws NullPointerException if the filter is null
+     */
+    public int removeAll(Predicate<? super E> filter) throws NullPointerException {
+        if (filter == null) {
+            throw new NullPointerException("Filter is null");
+        }
+        checkWritable();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        BSTreeNode<E>[] kept = (BSTreeNode<E>[]) new BSTreeNode[size];
+        int count = 0;
+        InorderIterator nodes = new InorderIterator();
+        while (nodes.hasNext()) {
+            BSTreeNode<E> node = nodes.advance();
+            if (!filter.test(node.getElement())) {
+                kept[count++] = own(node);
+            }
+        }
+
+        int removedCount = size - count;
+        if (removedCount > 0) {
+            root = buildBalanced(kept, 0, count);
+            size = count;
+            modCount++;
+        }
+        return removedCount;
     }
 
-    @Override
-    public Iterator<E> preorderIterator() {
-        ArrayList<E> iterator = new ArrayList<>();
-        preOrder(root, iterator);
+    // Array counterpart of buildBalanced that creates the nodes as it goes.
+    private static <T> BSTreeNode<T> buildFrom(T[] sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        if (sorted[mid] == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        BSTreeNode<T> node = new BSTreeNode<T>(sorted[mid]);
+        node.left = buildFrom(sorted, from, mid);
+        node.right = buildFrom(sorted, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    // Builds the left subtree first so nodes are created in iteration order.
+    private static <T> BSTreeNode<T> buildFrom(Iterator<? extends T> sorted, int count) {
+        if (count == 0) {
+            return null;
+        }
+        int leftCount = count / 2;
+        BSTreeNode<T> left = buildFrom(sorted, leftCount);
+        T element = sorted.next();
+        if (element == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        BSTreeNode<T> node = new BSTreeNode<T>(element);
+        node.left = left;
+        node.right = buildFrom(sorted, count - leftCount - 1);
+        update(node);
+        return node;
+    }
+
+    /**
+     * Links nodes[from, to), already in order, into a height-optimal subtree
+     * by taking the middle node as the root of each range. Recursion depth is
+     * only O(log n).
+     */
+    private static <T> BSTreeNode<T> buildBalanced(BSTreeNode<T>[] nodes, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        BSTreeNode<T> node = nodes[mid];
+        node.left = buildBalanced(nodes, from, mid);
+        node.right = buildBalanced(nodes, mid + 1, to);
+        update(node);
+        return node;
+    }
 
-        return new Iterator<E>() {
-            private int index = 0;
+    /**
+     * Allocates a stack for the root-to-node path of a mutation. Node heights
+     * bound the path length, so it normally never has to grow.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private BSTreeNode<E>[] newPath() {
+        return (BSTreeNode<E>[]) new BSTreeNode[heightOf(root) + 1];
+    }
 
-            @Override
-            public boolean hasNext() {
-                return index < iterator.size();
+    private static <T> T[] push(T[] path, int depth, T node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
+        }
+        path[depth] = node;
+        return path;
+    }
+
+    /**
+     * Walks back up a mutation path, refreshing the height and size of each
+     * ancestor, rebalancing it and relinking it under its parent. Every
+     * ancestor's size changes, so the walk always goes all the way to the root.
+     */
+    private void retrace(BSTreeNode<E>[] path, int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            BSTreeNode<E> node = path[i];
+            BSTreeNode<E> top = rebalance(node);
+
+            if (i == 0) {
+                root = top;
+            } else if (path[i - 1].left == node) {
+                path[i - 1].left = top;
+            } else {
+                path[i - 1].right = top;
             }
+        }
+    }
 
-            @Override
-            public E next() throws NoSuchElementException {
-                if (!hasNext()) {
-                    throw new NoSuchElementException("No next element");
-                }
-                return iterator.get(index++);
+    private static int heightOf(BSTreeNode<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int sizeOf(BSTreeNode<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(BSTreeNode<?> node) {
+        node.height = Math.max(heightOf(node.left), heightOf(node.right)) + 1;
+        node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+    }
+
+    /**
+     * Refreshes the height and size of a node whose children just changed and, in
+     * balanced mode, restores the AVL property with at most two rotations.
+     *
+     * @return the node now at the top of this subtree
+     */
+    private BSTreeNode<E> rebalance(BSTreeNode<E> node) {
+        update(node);
+        if (!balanced) {
+            return node;
+        }
+
+        int balance = heightOf(node.left) - heightOf(node.right);
+        if (balance > 1) {
+            if (heightOf(node.left.left) < heightOf(node.left.right)) {
+                node.left = rotateLeft(own(node.left));
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (heightOf(node.right.right) < heightOf(node.right.left)) {
+                node.right = rotateRight(own(node.right));
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    // node must already be owned; the pivot is owned here.
+    private BSTreeNode<E> rotateRight(BSTreeNode<E> node) {
+        BSTreeNode<E> pivot = own(node.left);
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private BSTreeNode<E> rotateLeft(BSTreeNode<E> node) {
+        BSTreeNode<E> pivot = own(node.right);
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    /**
+     * Trees saved before nodes carried their height and size deserialize with
+     * both at zero, so rebuild them bottom-up once.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (root != null && root.size == 0) {
+            PostorderIterator nodes = new PostorderIterator();
+            while (nodes.hasNext()) {
+                update(nodes.advance());
             }
-        };
+        }
+    }
+
+    @Override
+    public Iterator<E> inorderIterator() {
+        return new InorderIterator();
     }
 
-    private void preOrder(BSTreeNode<E> node, ArrayList<E> iterator) {
-        if (node == null) return;
-        iterator.add(node.getElement());
-        preOrder(node.left, iterator);
-        preOrder(node.right, iterator);
+    @Override
+    public Iterator<E> preorderIterator() {
+        return new PreorderIterator();
     }
 
     @Override
     public Iterator<E> postorderIterator() {
-        ArrayList<E> iterator = new ArrayList<>();
-        postOrder(root, iterator);
+        return new PostorderIterator();
+    }
 
-        return new Iterator<E>() {
-            private int index = 0;
+    /**
+     * In-order iteration over the elements from fromElement (inclusive) up to
+     * toElement (exclusive). Subtrees outside the bounds are never visited, so
+     * a query returning k elements costs O(height + k).
+     *
+     * @param fromElement low endpoint, inclusive
+     * @param toElement high endpoint, exclusive
+     * @return an iterator over the elements in range, in natural order
+     * @throws NullPointerException if either element is null
+     */
+    public Iterator<E> subTreeIterator(E fromElement, E toElement) throws NullPointerException {
+        if (fromElement == null || toElement == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        return new RangeIterator(fromElement, toElement);
+    }
+
+    /**
+     * In-order iteration over the elements strictly less than toElement.
+     *
+     * @param toElement high endpoint, exclusive
+     * @return an iterator over the elements in range, in natural order
+     * @throws NullPointerException if the element is null
+     */
+    public Iterator<E> headTreeIterator(E toElement) throws NullPointerException {
+        if (toElement == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        return new RangeIterator(null, toElement);
+    }
+
+    /**
+     * In-order iteration over the elements greater than or equal to
+     * fromElement.
+     *
+     * @param fromElement low endpoint, inclusive
+     * @return an iterator over the elements in range, in natural order
+     * @throws NullPointerException if the element is null
+     */
+    public Iterator<E> tailTreeIterator(E fromElement) throws NullPointerException {
+        if (fromElement == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        return new RangeIterator(fromElement, null);
+    }
 
-            @Override
-            public boolean hasNext() {
-                return index < iterator.size();
+    /**
+     * In-order iteration over the elements whose key starts with prefix, for
+     * trees ordered by a String key (plain Strings, or entries such as words
+     * that compare by their text). The prefix is turned into the half-open
+     * range [prefix, next prefix) and scanned with {@link #subTreeIterator}.
+     *
+     * @param prefix the text every returned key starts with
+     * @param toKey builds a probe element ordered like the given String, e.g.
+     *        {@code s -> s} or a word entry constructor
+     * @return an iterator over the matching elements, in natural order
+     * @throws NullPointerException if prefix or toKey is null
+     */
+    public Iterator<E> prefixIterator(String prefix, Function<? super String, ? extends E> toKey)
+            throws NullPointerException {
+        if (prefix == null || toKey == null) {
+            throw new NullPointerException("Prefix is null");
+        }
+
+        // The first String after every String starting with prefix: bump the
+        // last character that can be bumped and drop what follows it.
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        E from = toKey.apply(prefix);
+        if (end == 0) {
+            return new RangeIterator(from, null);
+        }
+        String next = prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+        return new RangeIterator(from, toKey.apply(next));
+    }
+
+    /**
+     * Base for the lazy traversal iterators. Each one walks the live tree with
+     * an explicit stack of at most height nodes instead of copying the
+     * elements up front, and is fail-fast: once the tree is structurally
+     * modified other than through this iterator, next() throws
+     * ConcurrentModificationException.
+     */
+    private abstract class TreeIterator implements Iterator<E> {
+        private BSTreeNode<E>[] stack = newPath();
+        private int depth;
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public E next() throws NoSuchElementException {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException("Tree was modified during iteration");
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException("No next element");
             }
+            return advance().getElement();
+        }
+
+        /**
+         * Pops the next node to return and pushes whatever follows it.
+         */
+        abstract BSTreeNode<E> advance();
+
+        void pushNode(BSTreeNode<E> node) {
+            stack = push(stack, depth++, node);
+        }
+
+        BSTreeNode<E> popNode() {
+            BSTreeNode<E> node = stack[--depth];
+            stack[depth] = null;
+            return node;
+        }
 
-            @Override
-            public E next() throws NoSuchElementException {
-                if (!hasNext()) {
-                    throw new NoSuchElementException("No next element");
+        BSTreeNode<E> peekNode() {
+            return depth == 0 ? null : stack[depth - 1];
+        }
+    }
+
+    private class InorderIterator extends TreeIterator {
+        InorderIterator() {
+            pushLeftSpine(root);
+        }
+
+        // Stacks the path to the smallest element >= low, skipping every
+        // subtree that lies entirely below it.
+        InorderIterator(E low) {
+            BSTreeNode<E> node = root;
+            while (node != null) {
+                if (low == null || node.getElement().compareTo(low) >= 0) {
+                    pushNode(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
                 }
-                return iterator.get(index++);
             }
-        };
+        }
+
+        private void pushLeftSpine(BSTreeNode<E> node) {
+            for (; node != null; node = node.left) {
+                pushNode(node);
+            }
+        }
+
+        @Override
+        BSTreeNode<E> advance() {
+            BSTreeNode<E> node = popNode();
+            pushLeftSpine(node.right);
+            return node;
+        }
     }
 
-    private void postOrder(BSTreeNode<E> node, ArrayList<E> iterator) {
-        if (node == null) return;
-        postOrder(node.left, iterator);
-        postOrder(node.right, iterator);
-        iterator.add(node.getElement());
+    /**
+     * In-order walk restricted to [low, high); a null bound is open. The
+     * initial descent only stacks nodes at or above low, and iteration stops
+     * at the first element that reaches high.
+     */
+    private class RangeIterator extends InorderIterator {
+        private final E high;
+
+        RangeIterator(E low, E high) {
+            super(low);
+            this.high = high;
+        }
+
+        @Override
+        public boolean hasNext() {
+            BSTreeNode<E> next = peekNode();
+            return next != null && (high == null || next.getElement().compareTo(high) < 0);
+        }
+    }
+
+    private class PreorderIterator extends TreeIterator {
+        PreorderIterator() {
+            if (root != null) pushNode(root);
+        }
+
+        @Override
+        BSTreeNode<E> advance() {
+            BSTreeNode<E> node = popNode();
+            if (node.right != null) pushNode(node.right);
+            if (node.left != null) pushNode(node.left);
+            return node;
+        }
+    }
+
+    private class PostorderIterator extends TreeIterator {
+        PostorderIterator() {
+            pushFirstLeaf(root);
+        }
+
+        // Descends to the first node in post-order below node, preferring left.
+        private void pushFirstLeaf(BSTreeNode<E> node) {
+            while (node != null) {
+                pushNode(node);
+                node = node.left != null ? node.left : node.right;
+            }
+        }
+
+        @Override
+        BSTreeNode<E> advance() {
+            BSTreeNode<E> node = popNode();
+            BSTreeNode<E> parent = peekNode();
+            if (parent != null && parent.left == node) {
+                pushFirstLeaf(parent.right);
+            }
+            return node;
+        }
     }
-}
\ No newline at end of file
+}
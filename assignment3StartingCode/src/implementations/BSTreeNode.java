@@ -9,12 +9,19 @@ public class BSTreeNode<E> implements Serializable
 	E key;
 	BSTreeNode<E> left;
 	BSTreeNode<E> right;
+	int height;
+	int size;
+	// Snapshot epoch of the BSTree that created this node; a tree only
+	// changes nodes of its current epoch and copies older, shared ones.
+	transient int epoch;
 	
 	
 	public BSTreeNode(E item) {
 		this.key = item;
 		this.left = null;
 		this.right = null;
+		this.height = 1;
+		this.size = 1;
 	}
 	
 	public E getElement() {
@@ -40,4 +47,19 @@ public class BSTreeNode<E> implements Serializable
     public void setRight(BSTreeNode<E> right) {
         this.right = right;
     }
+
+    /**
+     * @return the height of the subtree rooted at this node, as kept by BSTree
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of nodes in the subtree rooted at this node, as kept
+     *         by BSTree
+     */
+    public int getSize() {
+        return size;
+    }
 }
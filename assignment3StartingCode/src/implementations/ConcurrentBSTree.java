@@ -0,0 +1,281 @@
+package implementations;
+
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Thread-safe BSTreeADT that wraps a BSTree behind a StampedLock. Writers
+ * take the exclusive lock one at a time. Lookups first walk the tree with no
+ * lock at all, under an optimistic stamp, and only take the read lock if a
+ * writer got in during the walk, so searches keep running at full speed
+ * while ingestion is writing.
+ *
+ * Iterators walk a copy-on-write snapshot instead of copying the elements.
+ *
+ * Nodes and elements handed out are the live ones from the tree: callers
+ * that change an element, such as adding an occurrence to a word, must
+ * synchronize that themselves.
+ */
+public class ConcurrentBSTree<E extends Comparable<? super E>> implements BSTreeADT<E>
+{
+    private static final long serialVersionUID = 1L;
+
+    private final BSTree<E> tree;
+    private final StampedLock lock = new StampedLock();
+
+    public ConcurrentBSTree() {
+        this(false);
+    }
+
+    public ConcurrentBSTree(boolean balanced) {
+        tree = new BSTree<E>(balanced);
+    }
+
+    @Override
+    public BSTreeNode<E> getRoot() throws NullPointerException {
+        long stamp = lock.readLock();
+        try {
+            return tree.getRoot();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int getHeight() {
+        long stamp = lock.tryOptimisticRead();
+        int height = tree.getHeight();
+        if (lock.validate(stamp)) {
+            return height;
+        }
+        stamp = lock.readLock();
+        try {
+            return tree.getHeight();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = tree.size();
+        if (lock.validate(stamp)) {
+            return size;
+        }
+        stamp = lock.readLock();
+        try {
+            return tree.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            tree.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(E entry) throws NullPointerException {
+        return search(entry) != null;
+    }
+
+    @Override
+    public BSTreeNode<E> search(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Entry is null");
+        }
+        return find(entry, Comparable::compareTo);
+    }
+
+    /**
+     * Returns the node whose element matches key, inserting the element built
+     * by mappingFunction if there is none. A hit is found without locking, as
+     * search is; only a miss takes the write lock.
+     *
+     * @see BSTree#computeIfAbsent(Object, ToIntBiFunction, Function)
+     */
+    public <K> BSTreeNode<E> computeIfAbsent(K key, ToIntBiFunction<? super K, ? super E> comparator,
+            Function<? super K, ? extends E> mappingFunction) throws NullPointerException {
+        if (key == null || comparator == null || mappingFunction == null) {
+            throw new NullPointerException("Argument is null");
+        }
+
+        BSTreeNode<E> found = find(key, comparator);
+        if (found != null) {
+            return found;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            return tree.computeIfAbsent(key, comparator, mappingFunction);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Searches optimistically first: the walk reads nodes with no lock, so a
+     * concurrent rotation can show it a torn or even cyclic shape. The walk is
+     * therefore capped at size + 1 steps and any exception is swallowed;
+     * either way the stamp no longer validates and the search is repeated
+     * under the read lock.
+     */
+    private <K> BSTreeNode<E> find(K key, ToIntBiFunction<? super K, ? super E> comparator) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                BSTreeNode<E> node = tree.root();
+                for (int steps = tree.size() + 1; node != null && steps > 0; steps--) {
+                    int cmp = comparator.applyAsInt(key, node.key);
+                    if (cmp == 0) {
+                        break;
+                    }
+                    node = cmp < 0 ? node.left : node.right;
+                }
+                if (lock.validate(stamp)) {
+                    return node;
+                }
+            } catch (RuntimeException e) {
+                // torn read during a write, retried below
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            BSTreeNode<E> node = tree.root();
+            while (node != null) {
+                int cmp = comparator.applyAsInt(key, node.key);
+                if (cmp == 0) {
+                    return node;
+                }
+                node = cmp < 0 ? node.left : node.right;
+            }
+            return null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean add(E newEntry) throws NullPointerException {
+        long stamp = lock.writeLock();
+        try {
+            return tree.add(newEntry);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public BSTreeNode<E> removeMin() {
+        long stamp = lock.writeLock();
+        try {
+            return tree.removeMin();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public BSTreeNode<E> removeMax() {
+        long stamp = lock.writeLock();
+        try {
+            return tree.removeMax();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @see BSTree#remove(Comparable)
+     */
+    public BSTreeNode<E> remove(E entry) throws NullPointerException {
+        long stamp = lock.writeLock();
+        try {
+            return tree.remove(entry);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int rank(E entry) throws NullPointerException {
+        long stamp = lock.readLock();
+        try {
+            return tree.rank(entry);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public BSTreeNode<E> select(int index) throws IndexOutOfBoundsException {
+        long stamp = lock.readLock();
+        try {
+            return tree.select(index);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int countRange(E low, E high) throws NullPointerException {
+        long stamp = lock.readLock();
+        try {
+            return tree.countRange(low, high);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Takes a copy-on-write snapshot of the tree. The lock is held only long
+     * enough to start a new epoch, after which the snapshot is read with no
+     * locking at all while writers carry on.
+     *
+     * @see BSTree#snapshot()
+     */
+    public BSTree<E> snapshot() {
+        long stamp = lock.writeLock();
+        try {
+            return tree.snapshot();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * The traversal iterators walk a snapshot, so they see the tree as it was
+     * when created, never fail on later writes and hold no lock while they run.
+     */
+    @Override
+    public Iterator<E> inorderIterator() {
+        return snapshot().inorderIterator();
+    }
+
+    @Override
+    public Iterator<E> preorderIterator() {
+        return snapshot().preorderIterator();
+    }
+
+    @Override
+    public Iterator<E> postorderIterator() {
+        return snapshot().postorderIterator();
+    }
+}
@@ -0,0 +1,198 @@
+package implementations;
+
+import utilities.Iterator;
+import utilities.WordIndex;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * WordIndex for ingestion: words are found in an open-addressing hash table
+ * keyed by their text, so finding or adding a word costs O(word length)
+ * however many words there are, and the ordered BSTree is only built when
+ * something asks for order. The first in-order or prefix walk after a word
+ * was added sorts the elements and bulk-builds a balanced tree with
+ * BSTree.fromSorted; later walks reuse it until the next word is added.
+ *
+ * The table hashes a word's chars the way String.hashCode does, so a word
+ * that is still a reused buffer, such as a WordTokenizer, is hashed and
+ * compared in place and only becomes a String when it is new. That String
+ * is the key, and it is passed to the mapping function so the element can
+ * share it.
+ *
+ * Iterators walk the tree built when they were created, so they do not
+ * see words added later and never throw ConcurrentModificationException.
+ *
+ * @param <E> The type of element stored for each word, ordered by its word.
+ */
+public class HashedWordIndex<E extends Comparable<? super E>> implements WordIndex<E> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Function<? super String, ? extends E> toKey;
+
+    // Parallel arrays; a null key is an empty slot. Kept at most half full.
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private Object[] elements = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    // Built on demand for ordered walks, dropped when a word is added
+    private BSTree<E> ordered;
+
+    /**
+     * @param toKey builds a probe element ordered like the given word, used
+     *        for prefix iteration
+     */
+    public HashedWordIndex(Function<? super String, ? extends E> toKey) {
+        if (toKey == null) {
+            throw new NullPointerException("Argument is null");
+        }
+        this.toKey = toKey;
+    }
+
+    @Override
+    public E computeIfAbsent(CharSequence word, Function<? super CharSequence, ? extends E> mappingFunction)
+            throws NullPointerException {
+        if (word == null || mappingFunction == null) {
+            throw new NullPointerException("Argument is null");
+        }
+        int hash = hash(word);
+        int slot = find(word, hash);
+        if (keys[slot] != null) {
+            return element(slot);
+        }
+
+        String key = word.toString();
+        E element = mappingFunction.apply(key);
+        if (element == null) {
+            throw new NullPointerException("Mapped element is null");
+        }
+        keys[slot] = key;
+        hashes[slot] = hash;
+        elements[slot] = element;
+        ordered = null;
+        if (++size > keys.length / 2) {
+            grow();
+        }
+        return element;
+    }
+
+    @Override
+    public E get(CharSequence word) throws NullPointerException {
+        if (word == null) {
+            throw new NullPointerException("Word is null");
+        }
+        int slot = find(word, hash(word));
+        return keys[slot] == null ? null : element(slot);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<E> inorderIterator() {
+        return orderedTree().inorderIterator();
+    }
+
+    @Override
+    public Iterator<E> prefixIterator(String prefix) throws NullPointerException {
+        if (prefix == null) {
+            throw new NullPointerException("Prefix is null");
+        }
+        return orderedTree().prefixIterator(prefix, toKey);
+    }
+
+    /**
+     * Returns the elements as a balanced tree that now belongs to the
+     * caller: the index lets go of the tree it kept for its own iterators,
+     * so changing the tree's structure does not change this index. The
+     * elements themselves are still shared, and iterators made before this
+     * call walk the returned tree.
+     *
+     * @return the tree of every element, in natural order
+     */
+    public BSTree<E> getTree() {
+        BSTree<E> tree = orderedTree();
+        ordered = null;
+        return tree;
+    }
+
+    // The tree the iterators walk, built first if a word was added since.
+    @SuppressWarnings("unchecked")
+    private BSTree<E> orderedTree() {
+        if (ordered == null) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Comparable<Object>[] sorted = new Comparable[size];
+            int count = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != null) {
+                    sorted[count++] = (Comparable<Object>) elements[slot];
+                }
+            }
+            Arrays.sort(sorted);
+            ordered = BSTree.fromSorted((E[]) sorted, true);
+        }
+        return ordered;
+    }
+
+    // The slot holding word, or the empty slot where it would go.
+    private int find(CharSequence word, int hash) {
+        int mask = keys.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (hashes[slot] == hash && key.contentEquals(word)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E element(int slot) {
+        return (E) elements[slot];
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        Object[] oldElements = elements;
+        keys = new String[oldKeys.length * 2];
+        hashes = new int[keys.length];
+        elements = new Object[keys.length];
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                elements[slot] = oldElements[i];
+            }
+        }
+    }
+
+    // Same value as String.hashCode, which Strings have cached.
+    private static int hash(CharSequence word) {
+        if (word instanceof String) {
+            return word.hashCode();
+        }
+        int hash = 0;
+        for (int i = 0, length = word.length(); i < length; i++) {
+            hash = 31 * hash + word.charAt(i);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,270 @@
+package implementations;
+
+import utilities.Iterator;
+import utilities.WordIndex;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * WordIndex kept as a radix tree: a trie in which a chain of nodes with one
+ * child each is folded into a single edge labelled with all of its chars.
+ * A lookup reads each char of the word once, so it costs O(word length)
+ * however many words are stored, and words that share a prefix store it
+ * once.
+ *
+ * Each node keeps its children sorted by the first char of their label,
+ * and a node's own element comes before its children's, so a depth-first
+ * walk returns the words in String.compareTo order.
+ *
+ * @param <E> The type of element stored for each word.
+ */
+public class RadixTree<E> implements WordIndex<E> {
+
+    private static final char[] NO_CHARS = new char[0];
+
+    private final Node<E> root = new Node<E>(NO_CHARS);
+    private int size;
+
+    // Structural modification counter checked by the fail-fast iterators.
+    private int modCount;
+
+    private static final class Node<E> {
+        char[] label;              // the chars on the edge into this node
+        E element;                 // null unless a word ends here
+        char[] first = NO_CHARS;   // first char of each child's label, ascending
+        Node<E>[] children;        // same order as first
+
+        Node(char[] label) {
+            this.label = label;
+        }
+
+        // Index of the child whose label starts with c, or -(insertion point) - 1.
+        int childIndex(char c) {
+            return Arrays.binarySearch(first, c);
+        }
+
+        void insertChild(int index, Node<E> child) {
+            int count = first.length;
+            char[] newFirst = new char[count + 1];
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Node<E>[] newChildren = new Node[count + 1];
+            System.arraycopy(first, 0, newFirst, 0, index);
+            System.arraycopy(first, index, newFirst, index + 1, count - index);
+            if (count > 0) {
+                System.arraycopy(children, 0, newChildren, 0, index);
+                System.arraycopy(children, index, newChildren, index + 1, count - index);
+            }
+            newFirst[index] = child.label[0];
+            newChildren[index] = child;
+            first = newFirst;
+            children = newChildren;
+        }
+    }
+
+    @Override
+    public E computeIfAbsent(CharSequence word, Function<? super CharSequence, ? extends E> mappingFunction)
+            throws NullPointerException {
+        if (word == null || mappingFunction == null) {
+            throw new NullPointerException("Argument is null");
+        }
+
+        Node<E> node = root;
+        int length = word.length();
+        int i = 0;
+        while (i < length) {
+            int index = node.childIndex(word.charAt(i));
+            if (index < 0) {
+                // Nothing shares the rest of the word: it becomes one new leaf
+                E element = map(word, mappingFunction);
+                Node<E> leaf = new Node<E>(chars(word, i, length));
+                leaf.element = element;
+                node.insertChild(-index - 1, leaf);
+                size++;
+                modCount++;
+                return element;
+            }
+
+            Node<E> child = node.children[index];
+            char[] label = child.label;
+            int matched = 1;
+            while (matched < label.length && i + matched < length && label[matched] == word.charAt(i + matched)) {
+                matched++;
+            }
+            if (matched < label.length) {
+                // The word leaves or ends inside the label: split the edge there
+                Node<E> split = new Node<E>(Arrays.copyOf(label, matched));
+                child.label = Arrays.copyOfRange(label, matched, label.length);
+                split.insertChild(0, child);
+                node.children[index] = split;
+                modCount++;
+                child = split;
+            }
+            node = child;
+            i += matched;
+        }
+
+        if (node.element == null) {
+            node.element = map(word, mappingFunction);
+            size++;
+            modCount++;
+        }
+        return node.element;
+    }
+
+    private static <E> E map(CharSequence word, Function<? super CharSequence, ? extends E> mappingFunction) {
+        E element = mappingFunction.apply(word);
+        if (element == null) {
+            throw new NullPointerException("Mapped element is null");
+        }
+        return element;
+    }
+
+    private static char[] chars(CharSequence word, int from, int to) {
+        char[] chars = new char[to - from];
+        for (int i = from; i < to; i++) {
+            chars[i - from] = word.charAt(i);
+        }
+        return chars;
+    }
+
+    @Override
+    public E get(CharSequence word) throws NullPointerException {
+        if (word == null) {
+            throw new NullPointerException("Word is null");
+        }
+        Node<E> node = root;
+        int length = word.length();
+        int i = 0;
+        while (i < length) {
+            int index = node.childIndex(word.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            char[] label = node.label;
+            if (length - i < label.length) {
+                return null;
+            }
+            for (int j = 1; j < label.length; j++) {
+                if (label[j] != word.charAt(i + j)) {
+                    return null;
+                }
+            }
+            i += label.length;
+        }
+        return node.element;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every word.
+     */
+    public void clear() {
+        root.element = null;
+        root.first = NO_CHARS;
+        root.children = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<E> inorderIterator() {
+        return new RadixIterator(root);
+    }
+
+    @Override
+    public Iterator<E> prefixIterator(String prefix) throws NullPointerException {
+        if (prefix == null) {
+            throw new NullPointerException("Prefix is null");
+        }
+
+        // Find the highest node whose words all start with prefix
+        Node<E> node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(i));
+            if (index < 0) {
+                return new RadixIterator(null);
+            }
+            node = node.children[index];
+            char[] label = node.label;
+            int end = Math.min(label.length, prefix.length() - i);
+            for (int j = 1; j < end; j++) {
+                if (label[j] != prefix.charAt(i + j)) {
+                    return new RadixIterator(null);
+                }
+            }
+            i += label.length;
+        }
+        return new RadixIterator(node);
+    }
+
+    /**
+     * Depth-first walk under one node with an explicit stack of the nodes
+     * still to visit, a node's children pushed last first so they come off
+     * in order. Fail-fast like the BSTree iterators: once the tree is
+     * structurally modified, next() throws ConcurrentModificationException.
+     */
+    private class RadixIterator implements Iterator<E> {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Node<E>[] stack = new Node[16];
+        private int depth;
+        private final int expectedModCount = modCount;
+        private E next;
+
+        RadixIterator(Node<E> start) {
+            if (start != null) {
+                stack[depth++] = start;
+            }
+            advance();
+        }
+
+        // Pops nodes until one holds an element, stacking the children of each.
+        private void advance() {
+            next = null;
+            while (next == null && depth > 0) {
+                Node<E> node = stack[--depth];
+                stack[depth] = null;
+                if (node.children != null) {
+                    if (depth + node.children.length > stack.length) {
+                        stack = Arrays.copyOf(stack, Math.max(stack.length * 2, depth + node.children.length));
+                    }
+                    for (int i = node.children.length - 1; i >= 0; i--) {
+                        stack[depth++] = node.children[i];
+                    }
+                }
+                next = node.element;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() throws NoSuchElementException {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException("Tree was modified during iteration");
+            }
+            if (next == null) {
+                throw new NoSuchElementException("No next element");
+            }
+            E element = next;
+            advance();
+            return element;
+        }
+    }
+}
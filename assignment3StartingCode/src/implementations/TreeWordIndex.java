@@ -0,0 +1,85 @@
+package implementations;
+
+import utilities.Iterator;
+import utilities.WordIndex;
+
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * WordIndex over a BSTree whose elements are ordered by their word, such as
+ * word entries. Each lookup is one descent of the tree, comparing the word
+ * against stored elements without building a probe element.
+ */
+public class TreeWordIndex<E extends Comparable<? super E>> implements WordIndex<E> {
+
+    private final BSTree<E> tree;
+    private final ToIntBiFunction<? super CharSequence, ? super E> comparator;
+    private final Function<? super String, ? extends E> toKey;
+
+    /**
+     * @param tree the tree to look words up in and add them to
+     * @param comparator orders a word against stored elements consistently
+     *        with the elements' natural ordering
+     * @param toKey builds a probe element ordered like the given word, used
+     *        for prefix iteration
+     */
+    public TreeWordIndex(BSTree<E> tree, ToIntBiFunction<? super CharSequence, ? super E> comparator,
+            Function<? super String, ? extends E> toKey) {
+        if (tree == null || comparator == null || toKey == null) {
+            throw new NullPointerException("Argument is null");
+        }
+        this.tree = tree;
+        this.comparator = comparator;
+        this.toKey = toKey;
+    }
+
+    /**
+     * @return the tree this index reads and writes
+     */
+    public BSTree<E> getTree() {
+        return tree;
+    }
+
+    @Override
+    public E computeIfAbsent(CharSequence word, Function<? super CharSequence, ? extends E> mappingFunction)
+            throws NullPointerException {
+        return tree.computeIfAbsent(word, comparator, mappingFunction).getElement();
+    }
+
+    @Override
+    public E get(CharSequence word) throws NullPointerException {
+        if (word == null) {
+            throw new NullPointerException("Word is null");
+        }
+        BSTreeNode<E> node = tree.root();
+        while (node != null) {
+            int cmp = comparator.applyAsInt(word, node.getElement());
+            if (cmp == 0) {
+                return node.getElement();
+            }
+            node = cmp < 0 ? node.getLeft() : node.getRight();
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tree.isEmpty();
+    }
+
+    @Override
+    public Iterator<E> inorderIterator() {
+        return tree.inorderIterator();
+    }
+
+    @Override
+    public Iterator<E> prefixIterator(String prefix) throws NullPointerException {
+        return tree.prefixIterator(prefix, toKey);
+    }
+}
@@ -102,6 +102,41 @@ public interface BSTreeADT<E extends Comparable<? super E>> extends	Serializable
 	 */
 	public BSTreeNode<E> removeMax();
 
+	/**
+	 * Counts the elements in the tree that are smaller than the element passed
+	 * in, according to the natural ordering established by the Comparable
+	 * implementation. The element does not have to be stored in the tree.
+	 * 
+	 * @param entry the element to rank
+	 * @return the number of elements in the tree smaller than entry, which is
+	 *         also the index entry has, or would have, in an in-order iteration
+	 * @throws NullPointerException if the element being passed in is null
+	 */
+	public int rank( E entry ) throws NullPointerException;
+
+	/**
+	 * Retrieves the node holding the k-th smallest element of the tree, counting
+	 * from zero, so that <code>select( rank( e ) )</code> finds e.
+	 * 
+	 * @param index the zero-based position of the element in natural order
+	 * @return the node with the element at that position
+	 * @throws IndexOutOfBoundsException if index is negative or not less than
+	 *         the size of the tree
+	 */
+	public BSTreeNode<E> select( int index ) throws IndexOutOfBoundsException;
+
+	/**
+	 * Counts the elements in the tree that lie between two elements, both ends
+	 * included. Neither end has to be stored in the tree.
+	 * 
+	 * @param low the smallest element to count
+	 * @param high the largest element to count
+	 * @return the number of elements e with low &lt;= e &lt;= high, or 0 if low
+	 *         is greater than high
+	 * @throws NullPointerException if either element being passed in is null
+	 */
+	public int countRange( E low, E high ) throws NullPointerException;
+
 	/**
 	 * Generates an in-order iteration over the contents of the tree. Elements are
 	 * in their natural order.
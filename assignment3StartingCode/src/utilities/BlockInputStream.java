@@ -0,0 +1,92 @@
+package utilities;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a stream written by BlockOutputStream, checking each block's CRC32
+ * before any of its bytes are handed out.
+ *
+ * @see BlockOutputStream
+ */
+public class BlockInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final byte[] block = new byte[BlockOutputStream.BLOCK_SIZE];
+    private int position;
+    private int limit;
+    private int blocks;
+    private boolean ended;
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * @param in the stream to read the blocks from; closed by close()
+     */
+    public BlockInputStream(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    /**
+     * @throws EOFException if the stream ends before its end marker
+     * @throws StreamCorruptedException if a block fails its checksum
+     */
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !nextBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !nextBlock()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - position);
+        System.arraycopy(block, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (ended) {
+            return false;
+        }
+        try {
+            int length = in.readInt();
+            if (length == 0) {
+                ended = true;
+                return false;
+            }
+            if (length < 0 || length > block.length) {
+                throw new StreamCorruptedException("Bad length in block " + blocks + ": " + length);
+            }
+            in.readFully(block, 0, length);
+            int expected = in.readInt();
+            crc.reset();
+            crc.update(block, 0, length);
+            if ((int) crc.getValue() != expected) {
+                throw new StreamCorruptedException("Checksum mismatch in block " + blocks);
+            }
+            position = 0;
+            limit = length;
+            blocks++;
+            return true;
+        } catch (EOFException e) {
+            throw new EOFException("Stream is cut short in block " + blocks);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
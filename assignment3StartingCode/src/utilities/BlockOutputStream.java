@@ -0,0 +1,99 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Splits a stream into checksummed blocks so that damage is found on load
+ * instead of being read back as data. Each block is its length, up to
+ * BLOCK_SIZE bytes, the bytes themselves and the CRC32 of those bytes; a
+ * block of length zero ends the stream, so a file cut short is told apart
+ * from one that is complete.
+ *
+ * @see BlockInputStream
+ */
+public class BlockOutputStream extends OutputStream {
+
+    static final int BLOCK_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int count;
+    private final CRC32 crc = new CRC32();
+    private boolean closed;
+
+    /**
+     * @param out the stream to write the blocks to; closed by close()
+     */
+    public BlockOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == BLOCK_SIZE) {
+            writeBlock();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == BLOCK_SIZE) {
+                writeBlock();
+            }
+            int n = Math.min(len, BLOCK_SIZE - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        crc.reset();
+        crc.update(block, 0, count);
+        writeInt(count);
+        out.write(block, 0, count);
+        writeInt((int) crc.getValue());
+        count = 0;
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Writes out the current block, even if it is not full.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Writes the last block and the end marker, then closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeBlock();
+            writeInt(0);
+        } finally {
+            out.close();
+        }
+    }
+}
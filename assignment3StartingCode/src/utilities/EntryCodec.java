@@ -0,0 +1,32 @@
+package utilities;
+
+import java.io.IOException;
+
+/**
+ * Writes elements of a repository to the compact binary format and reads
+ * them back. RepositoryManager stores the tree's elements in sorted order
+ * through a codec and rebuilds the tree from that stream, so only the
+ * elements are encoded and never the nodes that hold them.
+ *
+ * @param <E> The type of element this codec writes and reads.
+ */
+public interface EntryCodec<E>
+{
+	/**
+	 * Writes one element.
+	 *
+	 * @param element the element to write
+	 * @param out the stream to write it to
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void write( E element, EntryOutput out ) throws IOException;
+
+	/**
+	 * Reads back one element written by <code>write</code>.
+	 *
+	 * @param in the stream to read from
+	 * @return the element read
+	 * @throws IOException if the stream cannot be read or is corrupt
+	 */
+	public E read( EntryInput in ) throws IOException;
+}
@@ -0,0 +1,116 @@
+package utilities;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffered input for the repository's binary format, the counterpart of
+ * EntryOutput.
+ */
+public class EntryInput implements Closeable {
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+    private int limit;
+
+    private final List<String> symbols;
+    private final boolean inlineSymbols;
+
+    /**
+     * @param in the stream to read from; closed by close()
+     */
+    public EntryInput(InputStream in) {
+        this.in = in;
+        this.symbols = new ArrayList<>();
+        this.inlineSymbols = true;
+    }
+
+    /**
+     * @param in the stream to read from; closed by close()
+     * @param symbols the shared symbol table the stream's ids refer to
+     */
+    public EntryInput(InputStream in, List<String> symbols) {
+        this.in = in;
+        this.symbols = symbols;
+        this.inlineSymbols = false;
+    }
+
+    /**
+     * @throws EOFException if the stream has ended
+     */
+    public int readByte() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Varint is too long");
+    }
+
+    public int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        if (length <= limit - position) {
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) readByte();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @see EntryOutput#writeSymbol(String)
+     */
+    public String readSymbol() throws IOException {
+        int id = readVarInt();
+        if (id < symbols.size()) {
+            return symbols.get(id);
+        }
+        if (id > symbols.size() || !inlineSymbols) {
+            throw new StreamCorruptedException("Unknown symbol: " + id);
+        }
+        String value = readString();
+        symbols.add(value);
+        return value;
+    }
+
+    private void fill() throws IOException {
+        int read = in.read(buffer);
+        if (read <= 0) {
+            throw new EOFException("Unexpected end of repository data");
+        }
+        position = 0;
+        limit = read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,148 @@
+package utilities;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Buffered output for the repository's binary format. Integers are written
+ * as varints, seven bits a byte, so small numbers such as line deltas take a
+ * single byte. Strings are UTF-8 with a varint length in front.
+ *
+ * Symbols are strings that repeat, such as file names: the first time a
+ * symbol is written it is given the next id and written out in full, and
+ * after that only its id is written. The dictionary is therefore spread
+ * through the stream and needs no separate section. Streams that are read
+ * in random order instead share a table the caller stores separately, and
+ * then only ids are written.
+ */
+public class EntryOutput implements Closeable, Flushable {
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private int count;
+    private long written;
+
+    private final Map<String, Integer> symbols;
+    private final boolean inlineSymbols;
+
+    /**
+     * @param out the stream to write to; closed by close()
+     */
+    public EntryOutput(OutputStream out) {
+        this.out = out;
+        this.symbols = new HashMap<>();
+        this.inlineSymbols = true;
+    }
+
+    /**
+     * @param out the stream to write to; closed by close()
+     * @param symbols the shared symbol table, to which new symbols are added
+     *        with the next id; only ids are written to the stream
+     */
+    public EntryOutput(OutputStream out, Map<String, Integer> symbols) {
+        this.out = out;
+        this.symbols = symbols;
+        this.inlineSymbols = false;
+    }
+
+    /**
+     * @return the number of bytes written so far, including any still buffered
+     */
+    public long size() {
+        return written + count;
+    }
+
+    public void writeByte(int value) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) value;
+    }
+
+    /**
+     * Writes value as an unsigned varint of one to five bytes.
+     */
+    public void writeVarInt(int value) throws IOException {
+        if (buffer.length - count < 5) {
+            flushBuffer();
+        }
+        while ((value & ~0x7F) != 0) {
+            buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[count++] = (byte) value;
+    }
+
+    /**
+     * Writes value as a zigzag varint, so small negative numbers are short too.
+     */
+    public void writeSignedVarInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes bytes already encoded by the caller, such as a run of varints.
+     */
+    public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length - count) {
+            flushBuffer();
+            if (length > buffer.length) {
+                out.write(bytes, offset, length);
+                written += length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Writes a string that is likely to repeat in this stream.
+     *
+     * @see EntryInput#readSymbol()
+     */
+    public void writeSymbol(String value) throws IOException {
+        Integer id = symbols.get(value);
+        if (id != null) {
+            writeVarInt(id);
+            return;
+        }
+        writeVarInt(symbols.size());
+        symbols.put(value, symbols.size());
+        if (inlineSymbols) {
+            writeString(value);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, count);
+        written += count;
+        count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package utilities;
+
+/**
+ * An EntryCodec for elements that are looked up by a String key, which lets
+ * RepositoryManager also write the repository as a MappedRepository that is
+ * searched in place.
+ *
+ * @param <E> The type of element this codec writes and reads.
+ */
+public interface KeyedEntryCodec<E> extends EntryCodec<E>
+{
+	/**
+	 * Returns the key of an element. Keys must sort, compared as UTF-8 bytes,
+	 * in the same order as the elements, and <code>write</code> must start
+	 * each element with <code>out.writeString( keyOf( element ) )</code>, so
+	 * a mapped record can be matched without decoding the rest of it.
+	 *
+	 * @param element the element to get the key of
+	 * @return the element's key
+	 */
+	public String keyOf( E element );
+
+	/**
+	 * Orders a key against an element in the elements' natural order, so an
+	 * in-memory tree of them can be searched by key in one descent. The
+	 * default compares the key with the element's key by
+	 * <code>String.compareTo</code>; override it for elements that sort
+	 * differently.
+	 *
+	 * @param key the key looked up
+	 * @param element the element to compare it with
+	 * @return a negative number, zero or a positive number as the key sorts
+	 *         before, with or after the element
+	 */
+	public default int compareKey( String key, E element )
+	{
+		return key.compareTo( keyOf( element ) );
+	}
+}
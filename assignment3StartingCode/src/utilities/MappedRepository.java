@@ -0,0 +1,371 @@
+package utilities;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import implementations.BSTree;
+
+/**
+ * Read-only repository that is searched in place through a memory-mapped
+ * file, so one lookup reads a few pages instead of loading the whole tree.
+ *
+ * Layout, all numbers big-endian:
+ *
+ *   header   magic "WTRI", version, three zero bytes, the journal sequence
+ *            number covered (long), the record count (int), the CRC32 of
+ *            the header with this field zero (int), the offsets of the index
+ *            and of the symbol table (longs), the CRC32 of the symbol table
+ *            (int) and a zero int
+ *   records  the elements in sorted order, each as its codec writes it,
+ *            starting with its key; file names and other symbols are ids
+ *   index    the offset (int) and CRC32 (int) of each record, so record i
+ *            is found in O(1)
+ *   symbols  the count, then each symbol string in id order
+ *
+ * A lookup binary searches the index, comparing the key at the start of
+ * each probed record with the key wanted as UTF-8 bytes, and decodes only
+ * the record that matches, after checking its CRC32. The header and symbol
+ * table are checked when first used, so damage is reported instead of read
+ * back as data without scanning the whole file. The mapping is limited to
+ * 2 GiB.
+ *
+ * @param <E> The type of element stored.
+ */
+public class MappedRepository<E> implements Closeable {
+
+    private static final byte[] MAGIC = { 'W', 'T', 'R', 'I' };
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 48;
+    private static final int HEADER_CHECKSUM = 20;
+    private static final int INDEX_ENTRY = 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final KeyedEntryCodec<E> codec;
+    private final long covered;
+    private final int count;
+    private final int indexOffset;
+    private final int symbolsOffset;
+    private final int symbolsChecksum;
+    private List<String> symbols;
+
+    private MappedRepository(FileChannel channel, MappedByteBuffer buffer, KeyedEntryCodec<E> codec)
+            throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.codec = codec;
+
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new StreamCorruptedException("Not a mapped repository");
+            }
+        }
+        if (buffer.get(4) != FORMAT_VERSION) {
+            throw new StreamCorruptedException("Unsupported mapped repository version: " + buffer.get(4));
+        }
+        byte[] header = new byte[HEADER_SIZE];
+        buffer.get(0, header);
+        Arrays.fill(header, HEADER_CHECKSUM, HEADER_CHECKSUM + Integer.BYTES, (byte) 0);
+        if (checksum(ByteBuffer.wrap(header)) != buffer.getInt(HEADER_CHECKSUM)) {
+            throw new StreamCorruptedException("Mapped repository header checksum mismatch");
+        }
+
+        covered = buffer.getLong(8);
+        count = buffer.getInt(16);
+        indexOffset = (int) buffer.getLong(24);
+        symbolsOffset = (int) buffer.getLong(32);
+        symbolsChecksum = buffer.getInt(40);
+        if (count < 0 || indexOffset < HEADER_SIZE || symbolsOffset < indexOffset
+                || (long) indexOffset + (long) count * INDEX_ENTRY > symbolsOffset
+                || symbolsOffset > buffer.capacity()) {
+            throw new StreamCorruptedException("Corrupt mapped repository header");
+        }
+    }
+
+    /**
+     * Maps the file read-only. Only the header is read here.
+     *
+     * @param file the file written by write
+     * @param codec reads each element
+     * @return the opened repository, to be closed by the caller
+     * @throws IOException if the file cannot be mapped or is not a mapped
+     *         repository
+     */
+    public static <E> MappedRepository<E> open(File file, KeyedEntryCodec<E> codec) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new StreamCorruptedException("Mapped repository has size " + size);
+            }
+            return new MappedRepository<E>(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), codec);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the tree in the mapped layout.
+     *
+     * @param target the file to write, replaced if it exists
+     * @param tree the elements to store, sorted by key
+     * @param codec writes each element
+     * @param covered the journal sequence number the tree includes
+     * @throws IOException if unable to write to file, or the tree needs more
+     *         than 2 GiB
+     */
+    static <E extends Comparable<? super E>> void write(File target, BSTree<E> tree, KeyedEntryCodec<E> codec,
+            long covered) throws IOException {
+        Map<String, Integer> symbolIds = new HashMap<>();
+        int[] offsets = new int[tree.size()];
+        int[] checksums = new int[tree.size()];
+        CRC32 crc = new CRC32();
+        long indexOffset;
+        long symbolsOffset;
+
+        // Records are encoded one at a time so each can be checksummed
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try (CountingOutput file = new CountingOutput(new FileOutputStream(target));
+                EntryOutput out = new EntryOutput(record, symbolIds)) {
+            file.write(new byte[HEADER_SIZE]);
+            Iterator<E> it = tree.inorderIterator();
+            for (int i = 0; it.hasNext(); i++) {
+                offsets[i] = checkedOffset(file.size());
+                record.reset();
+                codec.write(it.next(), out);
+                out.flush();
+                crc.reset();
+                crc.update(record.toByteArray());
+                checksums[i] = (int) crc.getValue();
+                record.writeTo(file);
+            }
+
+            indexOffset = checkedOffset(file.size());
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY);
+            for (int i = 0; i < checksums.length; i++) {
+                entry.clear();
+                file.write(entry.putInt(offsets[i]).putInt(checksums[i]).array());
+            }
+
+            symbolsOffset = checkedOffset(file.size());
+            String[] symbols = new String[symbolIds.size()];
+            for (Map.Entry<String, Integer> symbol : symbolIds.entrySet()) {
+                symbols[symbol.getValue()] = symbol.getKey();
+            }
+            record.reset();
+            try (EntryOutput table = new EntryOutput(record)) {
+                table.writeVarInt(symbols.length);
+                for (String symbol : symbols) {
+                    table.writeString(symbol);
+                }
+            }
+            crc.reset();
+            crc.update(record.toByteArray());
+            record.writeTo(file);
+            checkedOffset(file.size());
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).put((byte) FORMAT_VERSION).put(new byte[3]);
+        header.putLong(covered).putInt(checksums.length).putInt(0);
+        header.putLong(indexOffset).putLong(symbolsOffset);
+        header.putInt((int) crc.getValue()).putInt(0);
+        header.putInt(HEADER_CHECKSUM, checksum(ByteBuffer.wrap(header.array())));
+        try (RandomAccessFile patch = new RandomAccessFile(target, "rw")) {
+            patch.write(header.array());
+        }
+    }
+
+    private static int checksum(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static int checkedOffset(long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Repository is too large to map");
+        }
+        return (int) offset;
+    }
+
+    /**
+     * @return the number of elements stored
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the sequence number of the last journal change included
+     */
+    public long coveredSequence() {
+        return covered;
+    }
+
+    /**
+     * Finds the element with the given key by binary search on the mapped
+     * bytes.
+     *
+     * @param key the key to look for
+     * @return the element, or null if there is none with that key
+     * @throws IOException if the record found is corrupt
+     */
+    public E get(String key) throws IOException {
+        byte[] wanted = key.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp;
+            try {
+                cmp = compareKey(recordOffset(mid), wanted);
+            } catch (IndexOutOfBoundsException e) {
+                // A damaged offset or key length points outside the mapping
+                throw new StreamCorruptedException("Corrupt key in mapped record " + mid);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return read(mid);
+            }
+        }
+        return null;
+    }
+
+    private int recordOffset(int index) {
+        return buffer.getInt(indexOffset + index * INDEX_ENTRY);
+    }
+
+    // Compares the key stored at offset with wanted, unsigned byte by byte.
+    private int compareKey(int offset, byte[] wanted) {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buffer.get(offset++);
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+
+        int common = Math.min(length, wanted.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = (buffer.get(offset + i) & 0xFF) - (wanted[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - wanted.length;
+    }
+
+    private E read(int index) throws IOException {
+        int start = recordOffset(index);
+        int end = index + 1 < count ? recordOffset(index + 1) : indexOffset;
+        if (start < HEADER_SIZE || start > end || end > indexOffset) {
+            throw new StreamCorruptedException("Corrupt offset for mapped record " + index);
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.limit(end).position(start);
+        if (checksum(record.duplicate()) != buffer.getInt(indexOffset + index * INDEX_ENTRY + Integer.BYTES)) {
+            throw new StreamCorruptedException("Checksum mismatch in mapped record " + index);
+        }
+        try (EntryInput in = new EntryInput(new RecordStream(record), symbols())) {
+            return codec.read(in);
+        }
+    }
+
+    // The symbol table is read the first time a record is decoded.
+    private List<String> symbols() throws IOException {
+        if (symbols == null) {
+            ByteBuffer table = buffer.duplicate();
+            table.position(symbolsOffset);
+            if (checksum(table.duplicate()) != symbolsChecksum) {
+                throw new StreamCorruptedException("Mapped repository symbol table checksum mismatch");
+            }
+            List<String> loaded = new ArrayList<>();
+            try (EntryInput in = new EntryInput(new RecordStream(table))) {
+                for (int n = in.readVarInt(); n > 0; n--) {
+                    loaded.add(in.readString());
+                }
+            }
+            symbols = loaded;
+        }
+        return symbols;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Counts the bytes written, which gives each record its offset.
+    private static class CountingOutput extends BufferedOutputStream {
+        private long size;
+
+        CountingOutput(OutputStream out) {
+            super(out, 1 << 16);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            super.write(b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            size += len;
+        }
+
+        long size() {
+            return size;
+        }
+    }
+
+    // Reads the bytes of one region of the mapping.
+    private static class RecordStream extends InputStream {
+        private final ByteBuffer bytes;
+
+        RecordStream(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() {
+            return bytes.hasRemaining() ? bytes.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!bytes.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, bytes.remaining());
+            bytes.get(b, off, n);
+            return n;
+        }
+    }
+}
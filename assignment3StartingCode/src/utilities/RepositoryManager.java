@@ -1,51 +1,864 @@
 package utilities;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.BinaryOperator;
+import java.util.zip.CRC32;
+
 import implementations.BSTree;
+import implementations.BSTreeNode;
 
 /**
- * Handles serialization of BSTree to/from repository.ser
- * 
+ * Handles persistence of a BSTree as a snapshot, repository.ser, plus an
+ * append-only journal, repository.journal, of the changes made since.
+ *
+ * Each run appends only the tree of what it added, so saving costs the size
+ * of the change rather than the size of the index. Once the journal grows
+ * past half the snapshot, the full tree is written out as a new snapshot on
+ * a background thread, and the journal is cut down to the records that the
+ * snapshot it replaced, kept as the backup, does not include.
+ *
+ * Both files use a compact, versioned binary format instead of Java
+ * serialization: a tree is stored as its element count followed by the
+ * elements in sorted order, each written by an EntryCodec, and is loaded by
+ * bulk-building from that stream in O(n) with no recursion. The snapshot
+ * starts with a magic number, the format version and whether the tree is
+ * balanced. Snapshots and journal records written with Java serialization
+ * by earlier versions still load.
+ *
+ * With a KeyedEntryCodec the snapshot is also written as repository.idx, a
+ * MappedRepository, so lookup can answer for one key without loading the
+ * tree at all.
+ *
+ * The journal starts with the sequence number of the last change before its
+ * first record; record i is change base + i. The snapshot header holds the
+ * sequence number of the last change it includes, so records it already
+ * covers are skipped on load even if compaction stopped halfway. A journal
+ * that is missing, or whose header was cut short, starts after the last
+ * change any snapshot or index covers, so its records are never taken as
+ * covered.
+ *
+ * Nothing is overwritten in place. A snapshot is written to a temporary
+ * file, forced to disk and renamed over the old one, which is kept as
+ * repository.ser.bak; the journal keeps the records the backup is missing.
+ * The snapshot's header and each 64 KiB block, and each journal record,
+ * carry a CRC32 that is checked on load. A damaged snapshot is replaced by
+ * the backup plus the journal, a record cut short at the end of the journal
+ * by a crash is ignored and cut off before the next append, and a damaged
+ * journal record is skipped. If no snapshot can be read at all, load fails
+ * rather than returning an empty repository that would then be saved over
+ * the old one.
+ *
  * Usage:
- *   BSTree<E> tree = RepositoryManager.loadRepository();
+ *   BSTree<E> tree = RepositoryManager.loadRepository(codec, combiner);
  *   if (tree == null) tree = new BSTree<>();
- *   // ... process files and add to tree ...
- *   RepositoryManager.saveRepository(tree);
+ *   // ... process files into a new delta tree ...
+ *   RepositoryManager.appendToRepository(delta, codec);
+ *   // ... merge delta into tree ...
+ *   if (RepositoryManager.needsCompaction()) RepositoryManager.compactInBackground(tree.snapshot(), codec);
  */
 public class RepositoryManager {
-    
+
     private static final String REPOSITORY_FILE = "repository.ser";
-    
+    private static final String BACKUP_FILE = "repository.ser.bak";
+    private static final String JOURNAL_FILE = "repository.journal";
+    private static final String INDEX_FILE = "repository.idx";
+    private static final File CURRENT_DIRECTORY = new File(".");
+
+    private static final byte[] MAGIC = { 'W', 'T', 'R', 'S' };
+    // Version 1 snapshots have no checksums; they still load
+    private static final int FORMAT_VERSION = 2;
+    // Magic, version, balanced flag and covered sequence, then their CRC32
+    private static final int SNAPSHOT_HEADER = 14;
+
+    // Format of the tree inside a journal record
+    private static final int RECORD_VERSION = 1;
+
+    // First byte of a Java serialization stream, never a format version
+    private static final int JAVA_SERIALIZATION = 0xAC;
+
+    private static final byte[] JOURNAL_MAGIC = { 'W', 'T', 'R', 'J' };
+    // Version 1 journals are the bare base sequence and unchecked records
+    private static final int JOURNAL_VERSION = 2;
+
+    // Guards the journal against an append racing a compaction in this process
+    private static final Object JOURNAL_LOCK = new Object();
+
     /**
-     * Saves the BSTree to repository.ser using Java serialization
-     * 
+     * Saves the BSTree to repository.ser. The tree must include every change
+     * in the journal. The snapshot replaced becomes repository.ser.bak, and
+     * the journal keeps only the records that backup does not include.
+     *
      * @param tree The BSTree to save
+     * @param codec writes each element
+     * @throws IOException if unable to write to file
+     */
+    public static <E extends Comparable<? super E>> void saveRepository(BSTree<E> tree, EntryCodec<E> codec)
+            throws IOException {
+        saveRepository(CURRENT_DIRECTORY, tree, codec);
+    }
+
+    /**
+     * @param directory the directory holding the repository files
+     * @see #saveRepository(BSTree, EntryCodec)
+     */
+    public static <E extends Comparable<? super E>> void saveRepository(File directory, BSTree<E> tree,
+            EntryCodec<E> codec) throws IOException {
+        writeSnapshot(directory, tree, codec, lastSequence(directory));
+    }
+
+    /**
+     * Loads the BSTree from repository.ser, or from repository.ser.bak if
+     * that is damaged, and replays the journal on top of it. The journal's
+     * changes are merged with each other first, oldest first, and then with
+     * the snapshot in one pass.
+     *
+     * @param codec reads each element
+     * @param combiner given an element already loaded and an equal one from a
+     *        later change, returns the single element to keep
+     * @return The loaded BSTree, or null if there is no repository yet
+     * @throws IOException if there is a repository but neither snapshot can
+     *         be read
+     */
+    public static <E extends Comparable<? super E>> BSTree<E> loadRepository(EntryCodec<E> codec,
+            BinaryOperator<E> combiner) throws IOException {
+        return loadRepository(CURRENT_DIRECTORY, codec, combiner);
+    }
+
+    /**
+     * @param directory the directory holding the repository files
+     * @see #loadRepository(EntryCodec, BinaryOperator)
+     */
+    public static <E extends Comparable<? super E>> BSTree<E> loadRepository(File directory,
+            EntryCodec<E> codec, BinaryOperator<E> combiner) throws IOException {
+        File file = new File(directory, REPOSITORY_FILE);
+        File backup = new File(directory, BACKUP_FILE);
+        File journal = new File(directory, JOURNAL_FILE);
+
+        if (!file.exists() && !backup.exists() && !journal.exists()) {
+            return null;
+        }
+
+        BSTree<E> tree = null;
+        long[] covered = new long[1];
+        if (file.exists() || backup.exists()) {
+            tree = readAnySnapshot(directory, codec, covered);
+        }
+
+        BSTree<E> changes = null;
+        try (JournalReader reader = new JournalReader(directory)) {
+            if (reader.base() > covered[0]) {
+                System.err.println("Warning: repository journal starts at change " + (reader.base() + 1)
+                        + " but the snapshot ends at change " + covered[0]);
+            }
+            byte[] record;
+            while ((record = reader.next()) != null) {
+                if (reader.sequence() <= covered[0]) {
+                    continue;
+                }
+                BSTree<E> next = decodeRecord(record, codec, reader.sequence());
+                if (next != null) {
+                    changes = changes == null ? next : BSTree.merge(changes, next, combiner);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading repository journal: " + e.getMessage());
+        }
+
+        if (changes == null) {
+            return tree;
+        }
+        return tree == null ? changes : BSTree.merge(tree, changes, combiner);
+    }
+
+    /**
+     * Looks up one element by key without loading the repository: the key is
+     * binary searched in the memory-mapped repository.idx, and only journal
+     * records written since are decoded. Without a current repository.idx,
+     * as before the first compaction, the whole repository is loaded instead.
+     *
+     * @param key the key of the element wanted
+     * @param codec reads each element
+     * @param combiner given an element already found and an equal one from a
+     *        later change, returns the single element to keep
+     * @return the element, or null if the repository has none with that key
+     * @throws IOException if the repository cannot be read
+     */
+    public static <E extends Comparable<? super E>> E lookup(String key, KeyedEntryCodec<E> codec,
+            BinaryOperator<E> combiner) throws IOException {
+        return lookup(CURRENT_DIRECTORY, key, codec, combiner);
+    }
+
+    /**
+     * @param directory the directory holding the repository files
+     * @see #lookup(String, KeyedEntryCodec, BinaryOperator)
+     */
+    public static <E extends Comparable<? super E>> E lookup(File directory, String key,
+            KeyedEntryCodec<E> codec, BinaryOperator<E> combiner) throws IOException {
+        File index = new File(directory, INDEX_FILE);
+
+        E found = null;
+        long covered = -1;
+        if (index.exists()) {
+            try (MappedRepository<E> mapped = MappedRepository.open(index, codec)) {
+                found = mapped.get(key);
+                covered = mapped.coveredSequence();
+            } catch (IOException e) {
+                System.err.println("Error reading repository index: " + e.getMessage());
+                covered = -1;
+            }
+        }
+
+        try (JournalReader reader = new JournalReader(directory)) {
+            // No usable index, or changes between it and the journal were dropped
+            if (covered < 0 || reader.base() > covered) {
+                BSTree<E> tree = loadRepository(directory, codec, combiner);
+                return tree == null ? null : find(tree, key, codec);
+            }
+            byte[] record;
+            while ((record = reader.next()) != null) {
+                if (reader.sequence() <= covered) {
+                    continue;
+                }
+                BSTree<E> next = decodeRecord(record, codec, reader.sequence());
+                E change = next == null ? null : find(next, key, codec);
+                if (change != null) {
+                    found = found == null ? change : combiner.apply(found, change);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Finds the element with the key in one descent, in the tree's own order.
+    private static <E extends Comparable<? super E>> E find(BSTree<E> tree, String key, KeyedEntryCodec<E> codec) {
+        BSTreeNode<E> node = tree.search(key, codec::compareKey);
+        return node == null ? null : node.getElement();
+    }
+
+    /**
+     * Appends the tree of one run's changes to the journal and forces it to
+     * disk. Only the change is written, however large the repository is.
+     *
+     * @param delta the elements added by this run, in the form a later load
+     *        merges them with the combiner
+     * @param codec writes each element
      * @throws IOException if unable to write to file
      */
-    public static <E extends Comparable<? super E>> void saveRepository(BSTree<E> tree) throws IOException {
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(REPOSITORY_FILE))) {
-            out.writeObject(tree);
+    public static <E extends Comparable<? super E>> void appendToRepository(BSTree<E> delta, EntryCodec<E> codec)
+            throws IOException {
+        appendToRepository(CURRENT_DIRECTORY, delta, codec);
+    }
+
+    /**
+     * @param directory the directory holding the repository files
+     * @see #appendToRepository(BSTree, EntryCodec)
+     */
+    public static <E extends Comparable<? super E>> void appendToRepository(File directory, BSTree<E> delta,
+            EntryCodec<E> codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (EntryOutput out = new EntryOutput(bytes)) {
+            out.writeByte(RECORD_VERSION);
+            out.writeByte(delta.isBalanced() ? 1 : 0);
+            writeEntries(out, delta, codec);
+        }
+        byte[] record = bytes.toByteArray();
+
+        File journal = new File(directory, JOURNAL_FILE);
+        synchronized (JOURNAL_LOCK) {
+            int version;
+            try (JournalReader reader = new JournalReader(directory)) {
+                version = reader.version();
+            }
+            if (version == 1) {
+                // Upgrade to checksummed records before adding one
+                rewriteJournal(directory, 0);
+            }
+
+            long end;
+            long base;
+            try (JournalReader reader = new JournalReader(directory)) {
+                while (reader.skip()) {
+                    // find the end of the last whole record
+                }
+                end = reader.validLength();
+                base = reader.base();
+            }
+
+            boolean fresh = end == 0;
+            try (FileOutputStream stream = new FileOutputStream(journal, !fresh)) {
+                FileChannel channel = stream.getChannel();
+                if (channel.size() > end) {
+                    // A record cut short by a crash
+                    channel.truncate(end);
+                }
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                if (fresh) {
+                    writeJournalHeader(out, base);
+                }
+                writeRecord(out, record, checksum(record));
+                out.flush();
+                channel.force(false);
+            }
+            if (fresh) {
+                syncDirectory(directory);
+            }
         }
     }
-    
+
     /**
-     * Loads the BSTree from repository.ser if it exists
-     * 
-     * @return The loaded BSTree, or null if file doesn't exist
+     * @return true once the journal's changes since the snapshot have grown
+     *         past half the size of the snapshot, or there is a journal but
+     *         no snapshot yet
      */
+    public static boolean needsCompaction() {
+        return needsCompaction(CURRENT_DIRECTORY);
+    }
+
+    /**
+     * @param directory the directory holding the repository files
+     * @see #needsCompaction()
+     */
+    public static boolean needsCompaction(File directory) {
+        File file = new File(directory, REPOSITORY_FILE);
+        long covered = file.exists() ? readCoveredSequence(file) : 0;
+
+        long changes;
+        try (JournalReader reader = new JournalReader(directory)) {
+            long coveredEnd = reader.validLength();
+            while (reader.skip()) {
+                if (reader.sequence() <= covered) {
+                    coveredEnd = reader.validLength();
+                }
+            }
+            changes = reader.validLength() - coveredEnd;
+        } catch (IOException e) {
+            return false;
+        }
+        return changes > 0 && changes > file.length() / 2;
+    }
+
+    /**
+     * Writes the tree out as the new snapshot on a background thread and
+     * drops the journal records that it and the backup both include. The thread is not a daemon,
+     * so the program waits for it before exiting.
+     *
+     * @param tree the whole repository, including every change appended to
+     *        the journal so far; it must not change while the thread runs,
+     *        so pass a BSTree snapshot
+     * @param codec writes each element
+     * @return the started thread
+     * @throws IOException if unable to read the journal
+     */
+    public static <E extends Comparable<? super E>> Thread compactInBackground(BSTree<E> tree, EntryCodec<E> codec)
+            throws IOException {
+        return compactInBackground(CURRENT_DIRECTORY, tree, codec);
+    }
+
+    /**
+     * @param directory the directory holding the repository files
+     * @see #compactInBackground(BSTree, EntryCodec)
+     */
+    public static <E extends Comparable<? super E>> Thread compactInBackground(File directory, BSTree<E> tree,
+            EntryCodec<E> codec) throws IOException {
+        // Read now, while the journal is known to match the tree
+        long covered = lastSequence(directory);
+        Thread compaction = new Thread(() -> {
+            try {
+                writeSnapshot(directory, tree, codec, covered);
+            } catch (IOException e) {
+                System.err.println("Error compacting repository: " + e.getMessage());
+            }
+        }, "repository-compaction");
+        compaction.start();
+        return compaction;
+    }
+
     @SuppressWarnings("unchecked")
-    public static <E extends Comparable<? super E>> BSTree<E> loadRepository() {
-        File file = new File(REPOSITORY_FILE);
-        
-        if (!file.exists()) {
-            return null;
+    private static <E extends Comparable<? super E>> void writeSnapshot(File directory, BSTree<E> tree,
+            EntryCodec<E> codec, long covered) throws IOException {
+        File file = new File(directory, REPOSITORY_FILE);
+        File backup = new File(directory, BACKUP_FILE);
+        File temp = new File(directory, REPOSITORY_FILE + ".tmp");
+
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER + Integer.BYTES);
+        header.put(MAGIC).put((byte) FORMAT_VERSION).put((byte) (tree.isBalanced() ? 1 : 0)).putLong(covered);
+        header.putInt(checksum(Arrays.copyOf(header.array(), SNAPSHOT_HEADER)));
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            stream.write(header.array());
+            try (EntryOutput out = new EntryOutput(new BlockOutputStream(stream))) {
+                writeEntries(out, tree, codec);
+            }
         }
-        
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(REPOSITORY_FILE))) {
-            return (BSTree<E>) in.readObject();
+        sync(temp);
+
+        // The snapshot being replaced becomes the backup, unless it is
+        // damaged and the old backup is the better one, and the journal keeps
+        // every change the backup lacks
+        long previous = covered;
+        if (file.exists() && isIntact(file)) {
+            previous = readCoveredSequence(file);
+            moveIntoPlace(file, backup);
+        } else if (backup.exists()) {
+            previous = readCoveredSequence(backup);
+        }
+        moveIntoPlace(temp, file);
+
+        // Written before the journal is cut, so the index never misses a change
+        File index = new File(directory, INDEX_FILE);
+        if (codec instanceof KeyedEntryCodec) {
+            File indexTemp = new File(directory, INDEX_FILE + ".tmp");
+            MappedRepository.write(indexTemp, tree, (KeyedEntryCodec<E>) codec, covered);
+            sync(indexTemp);
+            moveIntoPlace(indexTemp, index);
+        } else {
+            Files.deleteIfExists(index.toPath());
+        }
+        rewriteJournal(directory, Math.min(previous, covered));
+    }
+
+    /**
+     * Reads repository.ser, or if it is missing or damaged repository.ser.bak,
+     * and stores the sequence number the one read covers in covered[0].
+     */
+    private static <E extends Comparable<? super E>> BSTree<E> readAnySnapshot(File directory, EntryCodec<E> codec,
+            long[] covered) throws IOException {
+        IOException failure = null;
+        for (String name : new String[] { REPOSITORY_FILE, BACKUP_FILE }) {
+            File candidate = new File(directory, name);
+            if (!candidate.exists()) {
+                continue;
+            }
+            try {
+                BSTree<E> tree = readSnapshot(candidate, codec, covered);
+                if (failure != null) {
+                    System.err.println("Recovered repository from " + name);
+                }
+                return tree;
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Error loading " + name + ": " + e.getMessage());
+                if (failure == null) {
+                    failure = new IOException("No readable repository snapshot: " + e.getMessage(), e);
+                }
+            }
+        }
+        throw failure != null ? failure : new IOException("No repository snapshot");
+    }
+
+    /**
+     * Reads the snapshot, in the binary format or as written by Java
+     * serialization, and stores the sequence number it covers in covered[0].
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<? super E>> BSTree<E> readSnapshot(File file, EntryCodec<E> codec,
+            long[] covered) throws IOException, ClassNotFoundException {
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            stream.mark(1);
+            if (stream.read() == JAVA_SERIALIZATION) {
+                stream.reset();
+                ObjectInputStream in = new ObjectInputStream(stream);
+                BSTree<E> tree = (BSTree<E>) in.readObject();
+                covered[0] = readSerializedCoveredSequence(in);
+                return balance(tree);
+            }
+            stream.reset();
+
+            DataInputStream data = new DataInputStream(stream);
+            byte[] header = new byte[SNAPSHOT_HEADER];
+            data.readFully(header);
+            if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC)) {
+                throw new StreamCorruptedException("Not a repository file");
+            }
+            int version = header[4];
+            EntryInput in;
+            if (version == 1) {
+                in = new EntryInput(stream);
+            } else if (version == FORMAT_VERSION) {
+                if (data.readInt() != checksum(header)) {
+                    throw new StreamCorruptedException("Repository header checksum mismatch");
+                }
+                in = new EntryInput(new BlockInputStream(stream));
+            } else {
+                throw new StreamCorruptedException("Unsupported repository version: " + version);
+            }
+            covered[0] = ByteBuffer.wrap(header).getLong(6);
+            return readEntries(in, codec, header[5] != 0);
+        }
+    }
+
+    // Checks every block checksum of a binary snapshot without decoding it.
+    // Older formats carry no checksums and are taken as they are.
+    private static boolean isIntact(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] header = new byte[SNAPSHOT_HEADER];
+            in.readFully(header);
+            if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC) || header[4] != FORMAT_VERSION) {
+                return true;
+            }
+            if (in.readInt() != checksum(header)) {
+                return false;
+            }
+            try (BlockInputStream blocks = new BlockInputStream(in)) {
+                blocks.transferTo(OutputStream.nullOutputStream());
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Sequence number a binary snapshot covers, read from its header alone;
+    // 0 for serialized or unreadable snapshots.
+    private static long readCoveredSequence(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            byte[] header = new byte[SNAPSHOT_HEADER];
+            in.readFully(header);
+            if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC)) {
+                return 0;
+            }
+            return ByteBuffer.wrap(header).getLong(6);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Last change that repository.ser, repository.ser.bak or repository.idx
+    // covers, where a journal started from nothing has to begin.
+    private static long coveredSequence(File directory) {
+        long covered = Math.max(readCoveredSequence(new File(directory, REPOSITORY_FILE)),
+                readCoveredSequence(new File(directory, BACKUP_FILE)));
+        File index = new File(directory, INDEX_FILE);
+        if (index.exists()) {
+            // Only the header is read, so no codec is needed
+            try (MappedRepository<?> mapped = MappedRepository.open(index, null)) {
+                covered = Math.max(covered, mapped.coveredSequence());
+            } catch (IOException e) {
+                // a damaged index covers nothing
+            }
+        }
+        return covered;
+    }
+
+    // Serialized snapshots written before the journal existed end right after the tree.
+    private static long readSerializedCoveredSequence(ObjectInputStream in) throws IOException {
+        try {
+            return in.readLong();
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+
+    // Returns null, after a warning, for a record that cannot be decoded.
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<? super E>> BSTree<E> decodeRecord(byte[] record, EntryCodec<E> codec,
+            long sequence) {
+        try {
+            if (record.length == 0) {
+                throw new StreamCorruptedException("Empty journal record");
+            }
+            if ((record[0] & 0xFF) == JAVA_SERIALIZATION) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record))) {
+                    return balance((BSTree<E>) in.readObject());
+                }
+            }
+
+            EntryInput in = new EntryInput(new ByteArrayInputStream(record));
+            int version = in.readByte();
+            if (version != RECORD_VERSION) {
+                throw new StreamCorruptedException("Unsupported journal version: " + version);
+            }
+            return readEntries(in, codec, in.readByte() != 0);
         } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading repository: " + e.getMessage());
+            System.err.println("Skipping journal change " + sequence + ": " + e.getMessage());
             return null;
         }
     }
+
+    // Trees serialized before BSTree had a balanced mode read back with it
+    // off, and the flag would be saved with every later snapshot, so they
+    // are rebuilt as balanced trees.
+    private static <E extends Comparable<? super E>> BSTree<E> balance(BSTree<E> tree) {
+        return tree.isBalanced() ? tree : BSTree.fromSorted(tree.inorderIterator(), tree.size(), true);
+    }
+
+    private static <E extends Comparable<? super E>> void writeEntries(EntryOutput out, BSTree<E> tree,
+            EntryCodec<E> codec) throws IOException {
+        out.writeVarInt(tree.size());
+        Iterator<E> it = tree.inorderIterator();
+        while (it.hasNext()) {
+            codec.write(it.next(), out);
+        }
+    }
+
+    // Bulk-builds the tree straight from the sorted stream of elements.
+    private static <E extends Comparable<? super E>> BSTree<E> readEntries(EntryInput in, EntryCodec<E> codec,
+            boolean balanced) throws IOException {
+        int count = in.readVarInt();
+        Iterator<E> entries = new Iterator<E>() {
+            private int read = 0;
+
+            @Override
+            public boolean hasNext() {
+                return read < count;
+            }
+
+            @Override
+            public E next() throws NoSuchElementException {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No next element");
+                }
+                read++;
+                try {
+                    return codec.read(in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        try {
+            return BSTree.fromSorted(entries, count, balanced);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Rewrites the journal, in the current version, without the records up to covered.
+    private static void rewriteJournal(File directory, long covered) throws IOException {
+        File journal = new File(directory, JOURNAL_FILE);
+        File temp = new File(directory, JOURNAL_FILE + ".tmp");
+
+        synchronized (JOURNAL_LOCK) {
+            try (JournalReader in = new JournalReader(directory);
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(new FileOutputStream(temp)))) {
+                writeJournalHeader(out, Math.max(in.base(), covered));
+                byte[] record;
+                while ((record = in.nextRaw()) != null) {
+                    if (in.sequence() > covered) {
+                        // Damaged records keep their checksum, and their place
+                        writeRecord(out, record, in.storedChecksum());
+                    }
+                }
+            }
+            sync(temp);
+            moveIntoPlace(temp, journal);
+        }
+    }
+
+    private static void writeJournalHeader(DataOutputStream out, long base) throws IOException {
+        out.write(JOURNAL_MAGIC);
+        out.writeByte(JOURNAL_VERSION);
+        out.writeLong(base);
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] record, int checksum) throws IOException {
+        out.writeInt(record.length);
+        out.write(record);
+        out.writeInt(checksum);
+    }
+
+    // Sequence number of the last change in the journal.
+    private static long lastSequence(File directory) throws IOException {
+        synchronized (JOURNAL_LOCK) {
+            try (JournalReader reader = new JournalReader(directory)) {
+                while (reader.skip()) {
+                    // count the records
+                }
+                return reader.sequence();
+            }
+        }
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    // Renames from over to, atomically where the file system allows it.
+    private static void moveIntoPlace(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(to.getAbsoluteFile().getParentFile());
+    }
+
+    private static void sync(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // Makes a rename durable; not every platform can open a directory.
+    private static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the rename is still atomic, just not yet durable
+        }
+    }
+
+    /**
+     * Reads the journal record by record. A record cut short, or a length
+     * that runs past the end of the file, ends the journal there. Without a
+     * whole header the journal is empty and its base is the last change the
+     * snapshots cover.
+     */
+    private static class JournalReader implements Closeable {
+        private final DataInputStream in;
+        private final long length;
+        private int version;
+        private long base;
+        private long sequence;
+        private long position;
+        private int checksum;
+
+        JournalReader(File directory) throws IOException {
+            File journal = new File(directory, JOURNAL_FILE);
+            length = journal.length();
+            if (length < Long.BYTES) {
+                in = null;
+                base = coveredSequence(directory);
+                sequence = base;
+                return;
+            }
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+            try {
+                int start = in.readInt();
+                if (start == ByteBuffer.wrap(JOURNAL_MAGIC).getInt()) {
+                    version = in.readUnsignedByte();
+                    if (version != JOURNAL_VERSION) {
+                        in.close();
+                        throw new StreamCorruptedException("Unsupported journal version: " + version);
+                    }
+                    base = in.readLong();
+                    position = JOURNAL_MAGIC.length + 1 + Long.BYTES;
+                } else {
+                    version = 1;
+                    base = ((long) start << 32) | (in.readInt() & 0xFFFFFFFFL);
+                    position = Long.BYTES;
+                }
+            } catch (EOFException e) {
+                // A header cut short: nothing was ever appended
+                version = 0;
+                base = coveredSequence(directory);
+                position = 0;
+            }
+            sequence = base;
+        }
+
+        /**
+         * @return 0 if there is no usable journal yet, otherwise its version
+         */
+        int version() {
+            return version;
+        }
+
+        long base() {
+            return base;
+        }
+
+        /**
+         * @return the sequence number of the last record read or skipped
+         */
+        long sequence() {
+            return sequence;
+        }
+
+        /**
+         * @return the length of the journal up to the end of the last whole
+         *         record read or skipped, or 0 if it has no usable header
+         */
+        long validLength() {
+            return position;
+        }
+
+        /**
+         * @return the checksum stored with the last record read
+         */
+        int storedChecksum() {
+            return checksum;
+        }
+
+        /**
+         * @return the next record whose checksum matches, or null at the end
+         */
+        byte[] next() throws IOException {
+            byte[] record;
+            while ((record = nextRaw()) != null) {
+                if (checksum(record) == checksum) {
+                    return record;
+                }
+                System.err.println("Skipping damaged journal change " + sequence);
+            }
+            return null;
+        }
+
+        /**
+         * @return the next record, damaged or not, or null at the end
+         */
+        byte[] nextRaw() throws IOException {
+            int recordLength = nextLength();
+            if (recordLength < 0) {
+                return null;
+            }
+            byte[] record = new byte[recordLength];
+            in.readFully(record);
+            checksum = version == 1 ? checksum(record) : in.readInt();
+            finishRecord(recordLength);
+            return record;
+        }
+
+        /**
+         * @return true if a whole record was skipped, false at the end
+         */
+        boolean skip() throws IOException {
+            int recordLength = nextLength();
+            if (recordLength < 0) {
+                return false;
+            }
+            in.skipBytes(recordLength + trailer());
+            finishRecord(recordLength);
+            return true;
+        }
+
+        // Reads the length of the next record, or returns -1 if no whole record is left.
+        private int nextLength() throws IOException {
+            if (version == 0 || length - position < Integer.BYTES) {
+                return -1;
+            }
+            int recordLength = in.readInt();
+            if (recordLength < 0 || recordLength + trailer() > length - position - Integer.BYTES) {
+                return -1;
+            }
+            return recordLength;
+        }
+
+        // Bytes after each record: version 1 has no checksum
+        private int trailer() {
+            return version == 1 ? 0 : Integer.BYTES;
+        }
+
+        private void finishRecord(int recordLength) {
+            position += Integer.BYTES + recordLength + trailer();
+            sequence++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
 }
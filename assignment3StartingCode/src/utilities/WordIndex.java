@@ -0,0 +1,59 @@
+package utilities;
+
+import java.util.function.Function;
+
+/**
+ * The operations WordTracker needs from the structure it counts words in:
+ * find or add the element for a word, walk the elements in alphabetical
+ * order, and walk those whose word starts with a prefix. Words compare as
+ * String.compareTo does.
+ *
+ * @param <E> The type of element stored for each word.
+ */
+public interface WordIndex<E>
+{
+	/**
+	 * Returns the element for the word, adding the one built by
+	 * mappingFunction if there is none. The word may be a reused buffer, such
+	 * as a WordTokenizer, so the function must copy it if it keeps it.
+	 *
+	 * @param word the word to look up
+	 * @param mappingFunction builds the element to add when the word is absent
+	 * @return the existing or newly added element
+	 * @throws NullPointerException if any argument, or the mapped element, is
+	 *         null
+	 */
+	public E computeIfAbsent( CharSequence word, Function<? super CharSequence, ? extends E> mappingFunction )
+			throws NullPointerException;
+
+	/**
+	 * Returns the element for the word.
+	 *
+	 * @param word the word to look up
+	 * @return the element, or null if the word is absent
+	 * @throws NullPointerException if word is null
+	 */
+	public E get( CharSequence word ) throws NullPointerException;
+
+	/**
+	 * @return the number of words stored
+	 */
+	public int size();
+
+	/**
+	 * @return true if no words are stored
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * @return an iterator over the elements in alphabetical order of their words
+	 */
+	public Iterator<E> inorderIterator();
+
+	/**
+	 * @param prefix the text every returned word starts with
+	 * @return an iterator over the matching elements in alphabetical order
+	 * @throws NullPointerException if prefix is null
+	 */
+	public Iterator<E> prefixIterator( String prefix ) throws NullPointerException;
+}
@@ -37,4 +37,12 @@ public class WordEntry implements Serializable, Comparable<WordEntry> {
     public int compareTo(WordEntry other) {
         return this.word.compareTo(other.word);
     }
+
+    /**
+     * Orders the tokenizer's current word against an entry, so lookups need no
+     * probe entry.
+     */
+    public static int compareToken(WordTokenizer token, WordEntry entry) {
+        return token.compareTo(entry.word);
+    }
 }
\ No newline at end of file
@@ -3,46 +3,29 @@ package wordtracker;
 import implementations.BSTree;
 import implementations.BSTreeNode;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class WordParser {
 
     /**
-     * Reads a text file line by line, extracts words, records line numbers,
+     * Reads a text file, extracts words, records line numbers,
      * and inserts or updates WordEntry objects in the provided BST.
      */
     public static void parseFile(String filename, BSTree<WordEntry> tree) throws IOException {
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
 
-            String line;
-            int lineNumber = 0;
+            // Letters and digits only; apostrophes split words here
+            WordTokenizer tokens = new WordTokenizer(channel, false);
 
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-
-                line = line.replaceAll("[^a-zA-Z0-9 ]", " ").toLowerCase();
-                String[] words = line.split("\\s+");
-
-                for (String word : words) {
-                    if (word.isEmpty()) {
-                        continue;
-                    }
-
-                    WordEntry entry = new WordEntry(word);
-
-                    BSTreeNode<WordEntry> node = tree.search(entry);
-
-                    if (node == null) {
-                        // New word → add to BST
-                        entry.addOccurrence(filename, lineNumber);
-                        tree.add(entry);
-                    } else {
-                        node.getElement().addOccurrence(filename, lineNumber);
-                    }
-                }
+            while (tokens.next()) {
+                // One descent finds the entry, or adds it if the word is new
+                BSTreeNode<WordEntry> node = tree.computeIfAbsent(tokens, WordEntry::compareToken,
+                        token -> new WordEntry(token.toString()));
+                node.getElement().addOccurrence(filename, tokens.lineNumber());
             }
         }
     }
@@ -0,0 +1,202 @@
+package wordtracker;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Splits text into lowercase words with a hand-written scanner instead of a
+ * regular expression. The file is memory-mapped a window at a time and its
+ * bytes are scanned in place, without copying or decoding them into a
+ * buffer; only the current word is lowercased into a reusable array, so
+ * scanning allocates nothing per line or per word. The tokenizer is itself
+ * the current word as a CharSequence, which lets callers look a word up
+ * before deciding whether it needs to become a String.
+ *
+ * A word is a run of ASCII letters and digits, plus apostrophes when enabled.
+ * Text is scanned as bytes without decoding: every byte outside ASCII is a
+ * separator, so UTF-8 and other ASCII-compatible files split exactly as their
+ * decoded characters would. Lines are numbered from 1 and end at "\n", "\r"
+ * or "\r\n", the same as BufferedReader.readLine.
+ *
+ * A tokenizer can cover just a byte range of a file, which lets one large
+ * file be split at line starts and scanned by several threads at once.
+ */
+public class WordTokenizer implements CharSequence {
+
+    // Largest part of the file mapped at once; a word may span two windows.
+    static final long WINDOW_SIZE = 64L << 20;
+
+    private final FileChannel channel;
+    private final long windowSize;
+    private long filePosition;
+    private final long end;
+    private final boolean[] wordChars = new boolean[128];
+
+    private MappedByteBuffer window;
+    private int position;
+    private int limit;
+
+    private char[] word = new char[32];
+    private int length;
+
+    private int line = 1;
+    private int wordLine;
+    private boolean afterCarriageReturn;
+
+    /**
+     * @param channel the file to split, mapped from start to end; the channel
+     *        is only used to map windows, so it can be shared between threads
+     * @param apostrophes whether apostrophes count as part of a word
+     * @throws IOException if the size of the file cannot be read
+     */
+    public WordTokenizer(FileChannel channel, boolean apostrophes) throws IOException {
+        this(channel, 0, channel.size(), apostrophes);
+    }
+
+    /**
+     * @param channel the file to split; the channel is only used to map
+     *        windows, so it can be shared between threads
+     * @param start offset of the first byte to scan, which should be the start
+     *        of a line; line numbers count from 1 there
+     * @param end offset just past the last byte to scan
+     * @param apostrophes whether apostrophes count as part of a word
+     */
+    public WordTokenizer(FileChannel channel, long start, long end, boolean apostrophes) {
+        this(channel, start, end, apostrophes, WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize the most bytes to map at once
+     */
+    WordTokenizer(FileChannel channel, long start, long end, boolean apostrophes, long windowSize) {
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.filePosition = start;
+        this.end = end;
+        for (char c = 'a'; c <= 'z'; c++) wordChars[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) wordChars[c] = true;
+        for (char c = '0'; c <= '9'; c++) wordChars[c] = true;
+        wordChars['\''] = apostrophes;
+    }
+
+    /**
+     * Advances to the next word.
+     *
+     * @return true if there is a word, false at the end of the input
+     * @throws IOException if the file cannot be read
+     */
+    public boolean next() throws IOException {
+        length = 0;
+
+        while (true) {
+            if (position == limit && !fill()) {
+                return length > 0;
+            }
+
+            int c = window.get(position++) & 0xFF;
+
+            if (c < 128 && wordChars[c]) {
+                afterCarriageReturn = false;
+                if (length == 0) {
+                    wordLine = line;
+                } else if (length == word.length) {
+                    word = Arrays.copyOf(word, length * 2);
+                }
+                word[length++] = (char) ((c >= 'A' && c <= 'Z') ? c + ('a' - 'A') : c);
+                continue;
+            }
+
+            if (c == '\n') {
+                if (!afterCarriageReturn) line++;
+                afterCarriageReturn = false;
+            } else if (c == '\r') {
+                line++;
+                afterCarriageReturn = true;
+            } else {
+                afterCarriageReturn = false;
+            }
+
+            if (length > 0) {
+                return true;
+            }
+        }
+    }
+
+    // Maps the next window of the range.
+    private boolean fill() throws IOException {
+        position = 0;
+        limit = 0;
+        long remaining = Math.min(end, channel.size()) - filePosition;
+        if (remaining <= 0) {
+            return false;
+        }
+
+        limit = (int) Math.min(windowSize, remaining);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, filePosition, limit);
+        filePosition += limit;
+        return true;
+    }
+
+    /**
+     * @return the line number the current word is on
+     */
+    public int lineNumber() {
+        return wordLine;
+    }
+
+    /**
+     * @return the number of line breaks scanned so far; once the whole range
+     *         is scanned, the number of lines it ends
+     */
+    public int lineBreaks() {
+        return line - 1;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+        return word[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    /**
+     * Compares the current word with a String the way String.compareTo does,
+     * without building a String for the word.
+     *
+     * @param other the String to compare with
+     * @return negative, zero or positive as the word sorts before, equal to or
+     *         after other
+     */
+    public int compareTo(String other) {
+        int common = Math.min(length, other.length());
+        for (int i = 0; i < common; i++) {
+            char c = word[i];
+            char d = other.charAt(i);
+            if (c != d) {
+                return c - d;
+            }
+        }
+        return length - other.length();
+    }
+
+    /**
+     * @return the current word as a new String
+     */
+    @Override
+    public String toString() {
+        return new String(word, 0, length);
+    }
+}
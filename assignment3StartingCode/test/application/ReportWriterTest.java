@@ -0,0 +1,181 @@
+package application;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import application.WordTracker.FileInfo;
+import application.WordTracker.WordEntry;
+
+/**
+ * Class Description: Tests for ReportWriter, each report checked against
+ * the String-based formatting it replaced, encoded with the platform
+ * charset.
+ */
+
+public class ReportWriterTest
+{
+	/**
+	 * Test method for
+	 * {@link application.ReportWriter#writeEntry(application.WordTracker.WordEntry, java.lang.String)}
+	 * in each mode, and for
+	 * {@link application.ReportWriter#writeNotFound(java.lang.String)}.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testWriteEntry() throws Exception
+	{
+		WordEntry kitty = new WordEntry( "kitty" );
+		kitty.addOccurrence( "test2.txt", 4 );
+		kitty.addOccurrence( "test1.txt", 1 );
+		kitty.addOccurrence( "test2.txt", 4 );
+		kitty.addOccurrence( "test2.txt", 120 );
+		WordEntry once = new WordEntry( "once" );
+		once.addOccurrence( "test3.txt", 7 );
+
+		for( String mode : new String[] { "-pf", "-pl", "-po" } )
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try( ReportWriter writer = new ReportWriter( bytes, true ) )
+			{
+				writer.writeEntry( kitty, mode );
+				writer.writeEntry( once, mode );
+				writer.writeNotFound( "missing" );
+			}
+			String expected = oldFormat( kitty, mode ) + oldFormat( once, mode ) + "missing -> not found"
+					+ System.lineSeparator();
+			assertArrayEquals( "Failed to match the old report for " + mode, encode( expected ), bytes.toByteArray() );
+		}
+	}
+
+	/**
+	 * Test method for {@link application.ReportWriter#writeInt(int)} at the
+	 * edges of each digit count and at the extremes.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testWriteInt() throws Exception
+	{
+		int[] values = { 0, 9, 10, 99, 100, 1_000_000_000, Integer.MAX_VALUE, -1, -10, Integer.MIN_VALUE };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		StringBuilder expected = new StringBuilder();
+		try( ReportWriter writer = new ReportWriter( bytes, true ) )
+		{
+			for( int value : values )
+			{
+				writer.writeInt( value );
+				writer.writeNotFound( "" );
+				expected.append( value ).append( " -> not found" ).append( System.lineSeparator() );
+			}
+		}
+		assertEquals( "Failed to format numbers.", expected.toString(), new String( bytes.toByteArray(),
+				Charset.defaultCharset() ) );
+	}
+
+	/**
+	 * Test method for
+	 * {@link application.ReportWriter#writeEntry(application.WordTracker.WordEntry, java.lang.String)}
+	 * for a report, and a word, longer than the 64 KiB buffer.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testWriteEntry_PastBuffer() throws Exception
+	{
+		char[] longWord = new char[70000];
+		Arrays.fill( longWord, 'w' );
+		WordEntry[] entries = new WordEntry[3000];
+		for( int i = 0; i < entries.length; i++ )
+		{
+			entries[i] = new WordEntry( i == 1500 ? new String( longWord ) : "word" + i );
+			for( int line = 1; line <= i % 7 + 1; line++ )
+			{
+				entries[i].addOccurrence( "file" + i % 5 + ".txt", line * 1000 + i );
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		StringBuilder expected = new StringBuilder();
+		try( ReportWriter writer = new ReportWriter( bytes, true ) )
+		{
+			for( WordEntry entry : entries )
+			{
+				writer.writeEntry( entry, "-po" );
+				expected.append( oldFormat( entry, "-po" ) );
+			}
+		}
+		assertTrue( "Failed to write past the buffer.", bytes.size() > 3 * ( 1 << 16 ) );
+		assertArrayEquals( "Failed to match the old report.", encode( expected.toString() ), bytes.toByteArray() );
+	}
+
+	/**
+	 * Test method for
+	 * {@link application.ReportWriter#writeEntry(application.WordTracker.WordEntry, java.lang.String)}
+	 * to encode a file name and a word outside ASCII with the platform
+	 * charset.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testWriteEntry_NonAscii() throws Exception
+	{
+		WordEntry entry = new WordEntry( "café" );
+		entry.addOccurrence( "naïve-日本.txt", 3 );
+		entry.addOccurrence( "plain.txt", 5 );
+
+		for( String mode : new String[] { "-pf", "-pl", "-po" } )
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try( ReportWriter writer = new ReportWriter( bytes, true ) )
+			{
+				writer.writeEntry( entry, mode );
+			}
+			assertArrayEquals( "Failed to encode the names for " + mode, encode( oldFormat( entry, mode ) ),
+					bytes.toByteArray() );
+		}
+	}
+
+	// The report line WordTracker built as a String before ReportWriter.
+	private static String oldFormat( WordEntry entry, String mode )
+	{
+		StringBuilder sb = new StringBuilder();
+		if( mode.equals( "-pf" ) )
+		{
+			sb.append( entry.getWord() ).append( " -> files: " );
+			for( int i = 0; i < entry.getFileCount(); i++ )
+			{
+				if( i > 0 )
+					sb.append( ", " );
+				sb.append( entry.getFileName( i ) );
+			}
+		}
+		else
+		{
+			boolean includeFreq = mode.equals( "-po" );
+			sb.append( entry.getWord() ).append( " -> " );
+			for( int i = 0; i < entry.getFileCount(); i++ )
+			{
+				if( i > 0 )
+					sb.append( " ; " );
+				FileInfo info = entry.getFileInfo( i );
+				sb.append( entry.getFileName( i ) ).append( " lines=" ).append( Arrays.toString( info.getLines() ) );
+				if( includeFreq )
+					sb.append( " freq=" ).append( info.getFrequency() );
+			}
+			if( includeFreq )
+				sb.append( " | totalFreq=" ).append( entry.getTotalFrequency() );
+		}
+		return sb.append( System.lineSeparator() ).toString();
+	}
+
+	private static byte[] encode( String text )
+	{
+		return text.getBytes( Charset.defaultCharset() );
+	}
+}
@@ -0,0 +1,304 @@
+package application;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import application.WordTracker.FileInfo;
+import application.WordTracker.InputFile;
+import application.WordTracker.WordEntry;
+import implementations.BSTree;
+import implementations.HashedWordIndex;
+import implementations.RadixTree;
+import implementations.TreeWordIndex;
+import utilities.Iterator;
+import utilities.WordIndex;
+
+/**
+ * Class Description: Tests for how WordTracker collects input files and
+ * scans them, in parallel, into one tree.
+ */
+
+public class WordTrackerTest
+{
+	// Attributes
+	private static final Supplier<WordIndex<WordEntry>> HASH = () -> new HashedWordIndex<>( WordEntry::new );
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link application.WordTracker#scanFiles(java.util.List, java.util.function.Supplier)}
+	 * to give the same tree as scanning the files one after another into one
+	 * index, for every kind of index.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testScanFiles() throws Exception
+	{
+		File directory = folder.newFolder( "input" );
+		Random random = new Random( 11 );
+		for( int i = 0; i < 7; i++ )
+		{
+			writeWords( new File( directory, "part" + i + ".txt" ), random, 2000 );
+		}
+		List<InputFile> inputFiles = new ArrayList<InputFile>();
+		WordTracker.collectInputFiles( directory, inputFiles );
+		WordTracker.collectInputFiles( new File( "res/test1.txt" ), inputFiles );
+
+		List<Supplier<WordIndex<WordEntry>>> indexes = Arrays.asList( HASH, RadixTree::new,
+				() -> new TreeWordIndex<>( new BSTree<>( true ), WordEntry::compareWord, WordEntry::new ) );
+		for( Supplier<WordIndex<WordEntry>> newIndex : indexes )
+		{
+			assertEquals( "Failed to match a sequential scan.", scanSequentially( inputFiles ),
+					describe( WordTracker.scanFiles( inputFiles, newIndex ) ) );
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link application.WordTracker#collectInputFiles(java.io.File, java.io.File, java.util.List)}
+	 * to list a directory's files in path order whatever order they were
+	 * made in.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCollectInputFiles_SortedOrder() throws Exception
+	{
+		File directory = folder.newFolder( "docs" );
+		new File( directory, "a" ).mkdir();
+		for( String name : new String[] { "b.txt", "a/c.txt", "a.txt", "a/b.txt" } )
+		{
+			write( new File( directory, name ), "word" );
+		}
+
+		List<InputFile> inputFiles = new ArrayList<InputFile>();
+		WordTracker.collectInputFiles( folder.getRoot(), directory, inputFiles );
+
+		assertEquals( "Failed to sort files.", Arrays.asList( "docs/a.txt", "docs/a/b.txt", "docs/a/c.txt", "docs/b.txt" ),
+				names( inputFiles ) );
+	}
+
+	/**
+	 * Test method for
+	 * {@link application.WordTracker#collectInputFiles(java.io.File, java.util.List)}
+	 * and
+	 * {@link application.WordTracker#scanFiles(java.util.List, java.util.function.Supplier)}
+	 * for a directory with no files.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testScanFiles_EmptyDirectory() throws Exception
+	{
+		File directory = folder.newFolder( "empty" );
+		new File( directory, "nested" ).mkdir();
+
+		List<InputFile> inputFiles = new ArrayList<InputFile>();
+		WordTracker.collectInputFiles( directory, inputFiles );
+
+		assertTrue( "Failed to find no files.", inputFiles.isEmpty() );
+		assertTrue( "Failed to return an empty tree.", WordTracker.scanFiles( inputFiles, HASH ).isEmpty() );
+	}
+
+	/**
+	 * Test method for
+	 * {@link application.WordTracker#scanFiles(java.util.List, java.util.function.Supplier)}
+	 * to throw the IOException of a file a worker thread could not read.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test( expected = IOException.class )
+	public void testScanFiles_IOException() throws Exception
+	{
+		File first = folder.newFile( "first.txt" );
+		write( first, "alpha" );
+		File missing = new File( folder.getRoot(), "missing.txt" );
+
+		WordTracker.scanFiles( Arrays.asList( new InputFile( first, "first.txt" ), new InputFile( missing, "missing.txt" ),
+				new InputFile( first, "first.txt" ) ), HASH );
+	}
+
+	/**
+	 * Test method for
+	 * {@link application.WordTracker#collectInputFiles(java.io.File, java.io.File, java.util.List)}
+	 * and {@link application.WordTracker#distinctInputFiles(java.util.List)}
+	 * to keep files of the same name in two directories apart, and to give a
+	 * file the same name, and scan it once, however often it is reached.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCollectInputFiles_Names() throws Exception
+	{
+		File a = folder.newFolder( "a" );
+		File b = folder.newFolder( "b" );
+		write( new File( a, "x.txt" ), "alpha" );
+		write( new File( b, "x.txt" ), "beta\nalpha" );
+		File root = folder.getRoot();
+
+		List<InputFile> inputFiles = new ArrayList<InputFile>();
+		WordTracker.collectInputFiles( root, a, inputFiles );
+		WordTracker.collectInputFiles( root, b, inputFiles );
+		WordEntry alpha = find( WordTracker.scanFiles( inputFiles, HASH ), "alpha" );
+		assertEquals( "Failed to keep both files.", 2, alpha.getFileCount() );
+		assertArrayEquals( "Failed to keep a/x.txt.", new int[] { 1 }, alpha.getFileInfo( "a/x.txt" ).getLines() );
+		assertArrayEquals( "Failed to keep b/x.txt.", new int[] { 2 }, alpha.getFileInfo( "b/x.txt" ).getLines() );
+
+		inputFiles.clear();
+		WordTracker.collectInputFiles( root, new File( a, "x.txt" ), inputFiles );
+		WordTracker.collectInputFiles( root, a, inputFiles );
+		WordTracker.collectInputFiles( root, new File( root, "b/../a/./x.txt" ), inputFiles );
+		assertEquals( "Failed to name the file one way.", Arrays.asList( "a/x.txt", "a/x.txt", "a/x.txt" ),
+				names( inputFiles ) );
+
+		inputFiles = WordTracker.distinctInputFiles( inputFiles );
+		assertEquals( "Failed to drop the repeats.", Arrays.asList( "a/x.txt" ), names( inputFiles ) );
+		alpha = find( WordTracker.scanFiles( inputFiles, HASH ), "alpha" );
+		assertArrayEquals( "Failed to scan the file once.", new int[] { 1 }, alpha.getFileInfo( "a/x.txt" ).getLines() );
+	}
+
+	/**
+	 * Test method for
+	 * {@link application.WordTracker#scanFile(java.io.File, java.lang.String, int, java.util.function.Supplier)}
+	 * to give the same tree as a sequential scan when a file with mixed line
+	 * breaks is cut into chunks, one of which starts right after a "\r\n" and
+	 * the last of which has no line break at its end.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testScanFile_Chunks() throws Exception
+	{
+		// The middle of the file falls inside "boundary", so two chunks split after its "\r\n"
+		Random random = new Random( 5 );
+		StringBuilder text = new StringBuilder();
+		appendLines( text, random, 1200 * 1024 );
+		text.append( "boundary\r\n" );
+		int split = text.length();
+		int size = 2 * ( split - 5 );
+		appendLines( text, random, size );
+		text.setLength( size );
+		text.setCharAt( size - 1, 'z' );
+		File file = folder.newFile( "big.txt" );
+		write( file, text.toString() );
+
+		try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+		{
+			assertArrayEquals( "Failed to split after the line break.", new long[] { 0, split, size },
+					WordTracker.chunkBounds( channel, 2 ) );
+		}
+
+		List<InputFile> inputFiles = Arrays.asList( new InputFile( file, "big.txt" ) );
+		List<String> expected = scanSequentially( inputFiles );
+		for( int chunks = 1; chunks <= 5; chunks++ )
+		{
+			assertEquals( "Failed to match a sequential scan in " + chunks + " chunks.", expected,
+					describe( WordTracker.scanFile( file, "big.txt", chunks, HASH ) ) );
+		}
+		assertEquals( "Failed to match a sequential scan.", expected,
+				describe( WordTracker.scanFiles( inputFiles, HASH ) ) );
+	}
+
+	// The files scanned on this thread, in order, into one index.
+	private static List<String> scanSequentially( List<InputFile> inputFiles ) throws IOException
+	{
+		WordIndex<WordEntry> index = HASH.get();
+		for( InputFile input : inputFiles )
+		{
+			WordTracker.scanFileIntoIndex( input.file, input.name, index );
+		}
+		List<String> entries = new ArrayList<String>();
+		Iterator<WordEntry> it = index.inorderIterator();
+		while( it.hasNext() )
+		{
+			entries.add( describe( it.next() ) );
+		}
+		return entries;
+	}
+
+	static List<String> describe( BSTree<WordEntry> tree )
+	{
+		List<String> entries = new ArrayList<String>();
+		Iterator<WordEntry> it = tree.inorderIterator();
+		while( it.hasNext() )
+		{
+			entries.add( describe( it.next() ) );
+		}
+		return entries;
+	}
+
+	// word file=[lines] file=[lines] ...
+	private static String describe( WordEntry entry )
+	{
+		StringBuilder text = new StringBuilder( entry.getWord() );
+		for( int i = 0; i < entry.getFileCount(); i++ )
+		{
+			FileInfo info = entry.getFileInfo( i );
+			text.append( ' ' ).append( entry.getFileName( i ) ).append( '=' )
+					.append( Arrays.toString( info.getLines() ) );
+		}
+		return text.toString();
+	}
+
+	private static WordEntry find( BSTree<WordEntry> tree, String word )
+	{
+		return tree.search( new WordEntry( word ) ).getElement();
+	}
+
+	private static List<String> names( List<InputFile> inputFiles )
+	{
+		List<String> names = new ArrayList<String>();
+		for( InputFile input : inputFiles )
+		{
+			names.add( input.name );
+		}
+		return names;
+	}
+
+	private static void writeWords( File file, Random random, int count ) throws IOException
+	{
+		StringBuilder text = new StringBuilder();
+		for( int i = 0; i < count; i++ )
+		{
+			text.append( "w" ).append( random.nextInt( 300 ) ).append( random.nextInt( 8 ) == 0 ? "\n" : " " );
+		}
+		write( file, text.toString() );
+	}
+
+	// Lines of words ending in "\n", "\r\n" or "\r", some blank, until text is at least length long.
+	private static void appendLines( StringBuilder text, Random random, int length )
+	{
+		String[] breaks = { "\n", "\r\n", "\r" };
+		while( text.length() < length )
+		{
+			for( int i = random.nextInt( 12 ); i > 0; i-- )
+			{
+				text.append( "w" ).append( random.nextInt( 500 ) ).append( ' ' );
+			}
+			text.append( breaks[random.nextInt( breaks.length )] );
+		}
+	}
+
+	static void write( File file, String text ) throws IOException
+	{
+		Files.write( file.toPath(), text.getBytes( StandardCharsets.US_ASCII ) );
+	}
+}
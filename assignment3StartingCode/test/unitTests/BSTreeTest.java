@@ -2,6 +2,9 @@ package unitTests;
 
 import static org.junit.Assert.*;
 
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -607,4 +610,578 @@ public class BSTreeTest
 	{
 		assertNull( "Failed to return maximum value.", tree.removeMax() );
 	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#BSTree(boolean)} to keep the
+	 * height logarithmic when sorted items are added to a balanced tree.
+	 */
+	@Test
+	public void testGetHeight_BalancedMode()
+	{
+		BSTree<Integer> balanced = new BSTree<Integer>( true );
+		balanced.add( one );
+		balanced.add( two );
+		balanced.add( three );
+		balanced.add( four );
+		balanced.add( five );
+		balanced.add( six );
+		balanced.add( seven );
+
+		assertEquals( "Failed to update size correctly.", 7, balanced.size() );
+		assertEquals( "Failed to keep the tree balanced.", 3, balanced.getHeight() );
+		assertEquals( "Failed to rotate the root.", four, balanced.getRoot().getElement() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#removeMin()} and
+	 * {@link implementations.BSTree#removeMax()} to keep a balanced tree balanced.
+	 */
+	@Test
+	public void testRemoveMinMax_BalancedMode()
+	{
+		BSTree<Integer> balanced = new BSTree<Integer>( true );
+		for( int i = 1; i <= 1000; i++ )
+		{
+			balanced.add( i );
+		}
+		for( int i = 1; i <= 400; i++ )
+		{
+			assertEquals( "Failed to remove minimum value.", i, (int) balanced.removeMin().getElement() );
+		}
+		for( int i = 1000; i > 900; i-- )
+		{
+			assertEquals( "Failed to remove maximum value.", i, (int) balanced.removeMax().getElement() );
+		}
+
+		assertEquals( "Failed to update size.", 500, balanced.size() );
+		assertTrue( "Failed to keep the tree balanced.", balanced.getHeight() <= 10 );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#add(java.lang.Comparable)},
+	 * {@link implementations.BSTree#search(java.lang.Comparable)} and the
+	 * iterators to handle a degenerate tree far deeper than the call stack.
+	 */
+	@Test
+	public void testDegenerateTree_NoStackOverflow()
+	{
+		int count = 20000;
+		for( int i = 0; i < count; i++ )
+		{
+			tree.add( i );
+		}
+
+		assertEquals( "Failed to return correct height.", count, tree.getHeight() );
+		assertEquals( "Failed to find the deepest element.", count - 1, (int) tree.search( count - 1 ).getElement() );
+
+		Iterator<Integer> it = tree.postorderIterator();
+		int visited = 0;
+		while( it.hasNext() )
+		{
+			it.next();
+			visited++;
+		}
+		assertEquals( "Failed to visit every element.", count, visited );
+
+		assertEquals( "Failed to remove maximum value.", count - 1, (int) tree.removeMax().getElement() );
+		assertEquals( "Failed to remove minimum value.", 0, (int) tree.removeMin().getElement() );
+		assertEquals( "Failed to update size.", count - 2, tree.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#inorderIterator()} to throw
+	 * ConcurrentModificationException when the tree changes during iteration.
+	 */
+	@Test
+	public void testInorderIterator_FailFast()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+
+		Iterator<Integer> it = tree.inorderIterator();
+		assertEquals( "Failed to return the first element.", two, it.next() );
+		tree.add( five );
+		try
+		{
+			it.next();
+			fail( "Failed to throw ConcurrentModificationException." );
+		}
+		catch( ConcurrentModificationException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#postorderIterator()} to throw
+	 * NoSuchElementException once every element has been returned.
+	 */
+	@Test
+	public void testPostorderIterator_NoSuchElementException()
+	{
+		tree.add( one );
+		Iterator<Integer> it = tree.postorderIterator();
+		assertEquals( "Failed to return the only element.", one, it.next() );
+		assertFalse( "Failed to return false.", it.hasNext() );
+		try
+		{
+			it.next();
+			fail( "Failed to throw NoSuchElementException." );
+		}
+		catch( NoSuchElementException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTreeNode#getSize()} and
+	 * {@link implementations.BSTreeNode#getHeight()} to track subtree metadata
+	 * through adds and removals.
+	 */
+	@Test
+	public void testNodeMetadata()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( three );
+
+		assertEquals( "Failed to track subtree size.", 5, tree.getRoot().getSize() );
+		assertEquals( "Failed to track subtree size.", 3, tree.search( two ).getSize() );
+		assertEquals( "Failed to track subtree height.", 2, tree.search( two ).getHeight() );
+
+		tree.removeMin();
+		tree.removeMax();
+
+		assertEquals( "Failed to track subtree size.", 3, tree.getRoot().getSize() );
+		assertEquals( "Failed to track subtree size.", 2, tree.search( two ).getSize() );
+		assertEquals( "Failed to update height.", 3, tree.getHeight() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#rank(java.lang.Comparable)}
+	 * and {@link implementations.BSTree#select(int)} to agree with the in-order
+	 * position of each element.
+	 */
+	@Test
+	public void testRankAndSelect()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+		tree.add( three );
+		tree.add( seven );
+
+		Integer[] shouldBe = { one, two, three, four, five, six, seven };
+		for( int i = 0; i < shouldBe.length; i++ )
+		{
+			assertEquals( "Failed to rank element.", i, tree.rank( shouldBe[i] ) );
+			assertEquals( "Failed to select element.", shouldBe[i], tree.select( i ).getElement() );
+		}
+		assertEquals( "Failed to rank missing element.", 3, tree.rank( 40 ) );
+		assertEquals( "Failed to rank missing element.", 7, tree.rank( 99 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#select(int)} to throw
+	 * IndexOutOfBoundsException for a position outside the tree.
+	 */
+	@Test
+	public void testSelect_IndexOutOfBoundsException()
+	{
+		tree.add( one );
+		try
+		{
+			tree.select( 1 );
+			fail( "Failed to throw IndexOutOfBoundsException." );
+		}
+		catch( IndexOutOfBoundsException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#countRange(java.lang.Comparable, java.lang.Comparable)}
+	 * to count the elements between two keys, both ends included.
+	 */
+	@Test
+	public void testCountRange()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+
+		assertEquals( "Failed to count range.", 3, tree.countRange( two, five ) );
+		assertEquals( "Failed to count range.", 2, tree.countRange( 12, 50 ) );
+		assertEquals( "Failed to count range.", 5, tree.countRange( 0, 100 ) );
+		assertEquals( "Failed to count empty range.", 0, tree.countRange( six, one ) );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#subTreeIterator(java.lang.Comparable, java.lang.Comparable)},
+	 * {@link implementations.BSTree#headTreeIterator(java.lang.Comparable)} and
+	 * {@link implementations.BSTree#tailTreeIterator(java.lang.Comparable)} to
+	 * return only the elements inside their bounds.
+	 */
+	@Test
+	public void testRangeIterators()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+		tree.add( three );
+		tree.add( seven );
+
+		Integer[] sub = { two, three, four };
+		Iterator<Integer> it = tree.subTreeIterator( 20, five );
+		for( Integer expected : sub )
+		{
+			assertEquals( "Sub-tree iterator is out of order ", expected, it.next() );
+		}
+		assertFalse( "Sub-tree iterator went past its bound.", it.hasNext() );
+
+		it = tree.headTreeIterator( three );
+		assertEquals( "Head-tree iterator is out of order ", one, it.next() );
+		assertEquals( "Head-tree iterator is out of order ", two, it.next() );
+		assertFalse( "Head-tree iterator went past its bound.", it.hasNext() );
+
+		it = tree.tailTreeIterator( six );
+		assertEquals( "Tail-tree iterator is out of order ", six, it.next() );
+		assertEquals( "Tail-tree iterator is out of order ", seven, it.next() );
+		assertFalse( "Tail-tree iterator went past its bound.", it.hasNext() );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#prefixIterator(java.lang.String, java.util.function.Function)}
+	 * to return only the words starting with the prefix.
+	 */
+	@Test
+	public void testPrefixIterator()
+	{
+		BSTree<String> words = new BSTree<String>( true );
+		words.add( "interval" );
+		words.add( "in" );
+		words.add( "internal" );
+		words.add( "inter" );
+		words.add( "intern" );
+		words.add( "into" );
+		words.add( "apple" );
+
+		String[] shouldBe = { "inter", "intern", "internal", "interval" };
+		Iterator<String> it = words.prefixIterator( "inter", s -> s );
+		for( String expected : shouldBe )
+		{
+			assertEquals( "Prefix iterator is out of order ", expected, it.next() );
+		}
+		assertFalse( "Prefix iterator went past its bound.", it.hasNext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#remove(java.lang.Comparable)}
+	 * to remove a leaf, a node with one child and a node with two children.
+	 */
+	@Test
+	public void testRemove()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+		tree.add( three );
+
+		assertEquals( "Failed to remove leaf.", three, tree.remove( three ).getElement() );
+		assertEquals( "Failed to remove node with one child.", six, tree.remove( six ).getElement() );
+		assertEquals( "Failed to remove root with two children.", four, tree.remove( four ).getElement() );
+		assertNull( "Failed to return null for missing element.", tree.remove( seven ) );
+
+		Integer[] shouldBe = { one, two, five };
+		Iterator<Integer> it = tree.inorderIterator();
+		for( Integer expected : shouldBe )
+		{
+			assertEquals( "In-order iterator is out of order ", expected, it.next() );
+		}
+		assertFalse( it.hasNext() );
+		assertEquals( "Failed to update size.", 3, tree.size() );
+		assertEquals( "Failed to promote successor to root.", five, tree.getRoot().getElement() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#remove(java.lang.Comparable)}
+	 * to keep a balanced tree balanced.
+	 */
+	@Test
+	public void testRemove_BalancedMode()
+	{
+		BSTree<Integer> balanced = new BSTree<Integer>( true );
+		for( int i = 0; i < 1024; i++ )
+		{
+			balanced.add( i );
+		}
+		for( int i = 0; i < 1024; i += 3 )
+		{
+			assertEquals( "Failed to remove element.", i, (int) balanced.remove( i ).getElement() );
+		}
+
+		assertEquals( "Failed to update size.", 682, balanced.size() );
+		assertTrue( "Failed to keep the tree balanced.", balanced.getHeight() <= 14 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#removeAll(java.util.function.Predicate)} to
+	 * remove every matching element and leave a minimal-height tree.
+	 */
+	@Test
+	public void testRemoveAll()
+	{
+		for( int i = 1; i <= 100; i++ )
+		{
+			tree.add( i );
+		}
+
+		assertEquals( "Failed to count removed elements.", 50, tree.removeAll( i -> i % 2 == 0 ) );
+		assertEquals( "Failed to update size.", 50, tree.size() );
+		assertEquals( "Failed to rebuild balanced tree.", 6, tree.getHeight() );
+		assertFalse( tree.contains( 42 ) );
+		assertTrue( tree.contains( 43 ) );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#computeIfAbsent(java.lang.Object, java.util.function.ToIntBiFunction, java.util.function.Function)}
+	 * to return the existing node on a hit and insert on a miss.
+	 */
+	@Test
+	public void testComputeIfAbsent()
+	{
+		BSTree<String> words = new BSTree<String>( true );
+		words.add( "22" );
+
+		BSTreeNode<String> hit = words.computeIfAbsent( two, ( k, e ) -> k.toString().compareTo( e ),
+				k -> { throw new AssertionError( "Mapping function called on a hit." ); } );
+		assertSame( "Failed to return the existing node.", words.getRoot(), hit );
+
+		BSTreeNode<String> added = words.computeIfAbsent( three, ( k, e ) -> k.toString().compareTo( e ),
+				k -> k.toString() );
+		assertEquals( "Failed to insert missing element.", "33", added.getElement() );
+		assertSame( "Failed to return the inserted node.", added, words.search( "33" ) );
+		assertEquals( "Failed to update size.", 2, words.size() );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#search(java.lang.Object, java.util.function.ToIntBiFunction)}
+	 * to find each element by key without comparing elements, and return
+	 * null for a missing key.
+	 */
+	@Test
+	public void testSearch_ByKey()
+	{
+		BSTree<Counted> counted = new BSTree<Counted>( true );
+		for( int i = 0; i < 100; i++ )
+		{
+			counted.add( new Counted( 2 * i ) );
+		}
+
+		for( int i = 0; i < 200; i++ )
+		{
+			Counted.comparisons = 0;
+			BSTreeNode<Counted> found = counted.search( i, ( k, e ) -> Integer.compare( k, e.value ) );
+			if( i % 2 == 0 )
+			{
+				assertEquals( "Failed to find key.", i, found.getElement().value );
+			}
+			else
+			{
+				assertNull( "Failed to return null.", found );
+			}
+			assertEquals( "Failed to search by the key alone.", 0, Counted.comparisons );
+		}
+		assertNull( "Failed to return null on an empty tree.", tree.search( 1, Integer::compare ) );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#computeIfAbsent(java.lang.Object, java.util.function.ToIntBiFunction, java.util.function.Function)}
+	 * to insert with no more comparisons than one descent, keep the tree
+	 * balanced and leave a snapshot unchanged.
+	 */
+	@Test
+	public void testComputeIfAbsent_OneDescent()
+	{
+		BSTree<Counted> live = new BSTree<Counted>( true );
+		BSTree<Counted> snapshot = null;
+		for( int i = 1; i <= 1000; i++ )
+		{
+			if( i == 501 )
+			{
+				snapshot = live.snapshot();
+			}
+			int height = live.getHeight();
+			Counted.comparisons = 0;
+			live.computeIfAbsent( new Counted( i ), Counted::compareTo, k -> k );
+			assertTrue( "Failed to insert in one descent.", Counted.comparisons <= height );
+		}
+
+		assertEquals( "Failed to return correct size.", 1000, live.size() );
+		assertTrue( "Failed to keep the tree balanced.", live.getHeight() <= 11 );
+		Iterator<Counted> it = live.inorderIterator();
+		for( int i = 1; i <= 1000; i++ )
+		{
+			assertEquals( "In-order iterator is out of order ", i, it.next().value );
+		}
+		assertEquals( "Failed to keep snapshot size.", 500, snapshot.size() );
+		it = snapshot.inorderIterator();
+		for( int i = 1; i <= 500; i++ )
+		{
+			assertEquals( "Snapshot iterator is out of order ", i, it.next().value );
+		}
+		assertFalse( it.hasNext() );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#fromSorted(java.lang.Comparable[], boolean)}
+	 * to build a minimal-height tree holding every element in order.
+	 */
+	@Test
+	public void testFromSorted()
+	{
+		Integer[] sorted = { one, two, three, four, five, six, seven };
+		BSTree<Integer> built = BSTree.fromSorted( sorted, true );
+
+		assertEquals( "Failed to return correct size.", 7, built.size() );
+		assertEquals( "Failed to build minimal height.", 3, built.getHeight() );
+		assertEquals( "Failed to pick the middle as root.", four, built.getRoot().getElement() );
+
+		Iterator<Integer> it = built.inorderIterator();
+		for( Integer expected : sorted )
+		{
+			assertEquals( "In-order iterator is out of order ", expected, it.next() );
+		}
+		assertTrue( "Failed to build a usable tree.", built.add( 88 ) );
+		assertEquals( "Failed to find added element.", 7, built.rank( 88 ) );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#merge(implementations.BSTree, implementations.BSTree, java.util.function.BinaryOperator)}
+	 * to interleave two trees and combine equal elements once.
+	 */
+	@Test
+	public void testMerge()
+	{
+		BSTree<Integer> other = new BSTree<Integer>();
+		tree.add( one );
+		tree.add( three );
+		tree.add( five );
+		other.add( two );
+		other.add( three );
+		other.add( seven );
+
+		BSTree<Integer> merged = BSTree.merge( tree, other, ( a, b ) -> a );
+
+		Integer[] shouldBe = { one, two, three, five, seven };
+		Iterator<Integer> it = merged.inorderIterator();
+		for( Integer expected : shouldBe )
+		{
+			assertEquals( "Merged iterator is out of order ", expected, it.next() );
+		}
+		assertFalse( it.hasNext() );
+		assertEquals( "Failed to return correct size.", 5, merged.size() );
+		assertEquals( "Failed to build minimal height.", 3, merged.getHeight() );
+		assertEquals( "Failed to leave the input unchanged.", 3, tree.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#snapshot()} to keep its
+	 * contents while the live balanced tree is added to and removed from.
+	 */
+	@Test
+	public void testSnapshot()
+	{
+		BSTree<Integer> live = new BSTree<Integer>( true );
+		for( int i = 1; i <= 100; i++ )
+		{
+			live.add( i );
+		}
+
+		BSTree<Integer> snapshot = live.snapshot();
+		for( int i = 101; i <= 200; i++ )
+		{
+			live.add( i );
+		}
+		live.removeAll( value -> value % 2 == 0 );
+		live.removeMin();
+		live.remove( 51 );
+
+		assertEquals( "Failed to keep snapshot size.", 100, snapshot.size() );
+		assertEquals( "Failed to return correct size.", 98, live.size() );
+		Iterator<Integer> it = snapshot.inorderIterator();
+		for( int i = 1; i <= 100; i++ )
+		{
+			assertEquals( "Snapshot iterator is out of order ", i, (int) it.next() );
+		}
+		assertFalse( it.hasNext() );
+		assertEquals( "Failed to rank in snapshot.", 49, snapshot.rank( 50 ) );
+		assertNull( "Live tree kept a removed element.", live.search( 51 ) );
+		assertTrue( "Failed to keep the live tree balanced.", live.getHeight() <= 8 );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#snapshot()} to reject
+	 * changes to the snapshot itself.
+	 */
+	@Test
+	public void testSnapshot_ReadOnly()
+	{
+		tree.add( one );
+		BSTree<Integer> snapshot = tree.snapshot();
+
+		assertTrue( "Failed to mark snapshot read-only.", snapshot.isReadOnly() );
+		try
+		{
+			snapshot.add( two );
+			fail( "Failed to throw UnsupportedOperationException." );
+		}
+		catch( UnsupportedOperationException e )
+		{
+			assertTrue( true );
+		}
+		assertTrue( "Failed to keep the live tree writable.", tree.add( two ) );
+		assertEquals( "Snapshot saw a later write.", 1, snapshot.size() );
+	}
+
+	// Counts every comparison made between elements.
+	private static class Counted implements Comparable<Counted>
+	{
+		static int comparisons;
+		final int value;
+
+		Counted( int value )
+		{
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo( Counted other )
+		{
+			comparisons++;
+			return Integer.compare( value, other.value );
+		}
+	}
 }
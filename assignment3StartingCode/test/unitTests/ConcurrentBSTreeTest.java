@@ -0,0 +1,158 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import implementations.BSTreeNode;
+import implementations.ConcurrentBSTree;
+
+/**
+ * Class Description: Tests for the thread-safe ConcurrentBSTree wrapper,
+ * single-threaded behaviour first and then readers racing writers.
+ */
+
+public class ConcurrentBSTreeTest
+{
+	// Attributes
+	private ConcurrentBSTree<Integer> tree;
+
+	/**
+	 * Initializes a new balanced ConcurrentBSTree before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new ConcurrentBSTree<Integer>( true );
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		tree = null;
+	}
+
+	/**
+	 * Test method for the delegated BSTreeADT operations on a single thread.
+	 */
+	@Test
+	public void testSingleThreaded()
+	{
+		for( int i = 1; i <= 7; i++ )
+		{
+			assertTrue( "Failed to add element.", tree.add( i * 11 ) );
+		}
+
+		assertEquals( "Failed to return correct size.", 7, tree.size() );
+		assertEquals( "Failed to keep the tree balanced.", 3, tree.getHeight() );
+		assertTrue( "Failed to return true.", tree.contains( 44 ) );
+		assertNull( "Failed to return null.", tree.search( 45 ) );
+		assertEquals( "Failed to rank element.", 3, tree.rank( 44 ) );
+		assertEquals( "Failed to remove minimum value.", 11, (int) tree.removeMin().getElement() );
+		assertEquals( "Failed to remove element.", 44, (int) tree.remove( 44 ).getElement() );
+
+		BSTreeNode<Integer> added = tree.computeIfAbsent( 50, Integer::compare, k -> k );
+		assertSame( "Failed to return the existing node.", added, tree.computeIfAbsent( 50, Integer::compare,
+				k -> { throw new AssertionError( "Mapping function called on a hit." ); } ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.ConcurrentBSTree#inorderIterator()}
+	 * to keep iterating over its copy while the tree is modified.
+	 */
+	@Test
+	public void testInorderIterator_NotFailFast()
+	{
+		tree.add( 22 );
+		tree.add( 11 );
+		tree.add( 33 );
+
+		Iterator<Integer> it = tree.inorderIterator();
+		assertEquals( "In-order iterator is out of order ", 11, (int) it.next() );
+		tree.add( 44 );
+		assertEquals( "In-order iterator is out of order ", 22, (int) it.next() );
+		assertEquals( "In-order iterator is out of order ", 33, (int) it.next() );
+		assertFalse( "Iterator saw a later write.", it.hasNext() );
+	}
+
+	/**
+	 * Test method for readers searching while several writers add elements.
+	 * Elements added before the readers start must always be found.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testConcurrentReadersAndWriters() throws Exception
+	{
+		final int perWriter = 20000;
+		final int writers = 4;
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( -1 - i );
+		}
+
+		AtomicBoolean missed = new AtomicBoolean();
+		AtomicBoolean done = new AtomicBoolean();
+		List<Thread> threads = new ArrayList<Thread>();
+		for( int w = 0; w < writers; w++ )
+		{
+			final int offset = w;
+			threads.add( new Thread( () -> {
+				for( int i = 0; i < perWriter; i++ )
+				{
+					tree.add( i * writers + offset );
+				}
+			} ) );
+		}
+		Thread reader = new Thread( () -> {
+			while( !done.get() )
+			{
+				for( int i = 0; i < 1000; i++ )
+				{
+					if( !tree.contains( -1 - i ) )
+					{
+						missed.set( true );
+					}
+				}
+			}
+		} );
+
+		reader.start();
+		for( Thread t : threads )
+		{
+			t.start();
+		}
+		for( Thread t : threads )
+		{
+			t.join();
+		}
+		done.set( true );
+		reader.join();
+
+		assertFalse( "Reader failed to find an existing element.", missed.get() );
+		assertEquals( "Failed to add every element.", 1000 + writers * perWriter, tree.size() );
+		Iterator<Integer> it = tree.inorderIterator();
+		int previous = Integer.MIN_VALUE;
+		while( it.hasNext() )
+		{
+			int next = it.next();
+			assertTrue( "In-order iterator is out of order ", previous < next );
+			previous = next;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+import utilities.WordIndex;
+
+import implementations.BSTree;
+import implementations.HashedWordIndex;
+import implementations.TreeWordIndex;
+
+/**
+ * Class Description: Tests for the HashedWordIndex, checked against a
+ * TreeWordIndex over a BSTree holding the same words.
+ */
+
+public class HashedWordIndexTest
+{
+	// Attributes
+	private HashedWordIndex<String> index;
+
+	/**
+	 * Initializes a new empty HashedWordIndex before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		index = new HashedWordIndex<String>( s -> s );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.HashedWordIndex#computeIfAbsent(java.lang.CharSequence, java.util.function.Function)}
+	 * for words given as Strings and as reused buffers, across table growth.
+	 */
+	@Test
+	public void testComputeIfAbsent()
+	{
+		StringBuilder buffer = new StringBuilder();
+		for( int i = 0; i < 1000; i++ )
+		{
+			buffer.setLength( 0 );
+			buffer.append( "w" ).append( i );
+			assertEquals( "Failed to add word.", "w" + i, index.computeIfAbsent( buffer, CharSequence::toString ) );
+		}
+		assertEquals( "Failed to return correct size.", 1000, index.size() );
+
+		for( int i = 0; i < 1000; i++ )
+		{
+			buffer.setLength( 0 );
+			buffer.append( "w" ).append( i );
+			assertSame( "Failed to return the existing element.", index.get( "w" + i ),
+					index.computeIfAbsent( buffer,
+							w -> { throw new AssertionError( "Mapping function called on a hit." ); } ) );
+		}
+		assertEquals( "Failed to return correct size.", 1000, index.size() );
+		assertNull( "Failed to return null.", index.get( "w1000" ) );
+		assertNull( "Failed to return null for the empty word.", index.get( "" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.HashedWordIndex#inorderIterator()}
+	 * to return the words in String.compareTo order, and the words added
+	 * after an earlier walk.
+	 */
+	@Test
+	public void testInorderIterator()
+	{
+		TreeSet<String> expected = new TreeSet<String>();
+		Random random = new Random( 7 );
+		for( int i = 0; i < 5000; i++ )
+		{
+			char[] word = new char[1 + random.nextInt( 6 )];
+			for( int j = 0; j < word.length; j++ )
+			{
+				word[j] = (char) ( 'a' + random.nextInt( 4 ) );
+			}
+			String s = new String( word );
+			expected.add( s );
+			index.computeIfAbsent( s, CharSequence::toString );
+			if( i == 2500 )
+			{
+				assertEquals( "Failed to walk every word.", expected.size(), toList( index.inorderIterator() ).size() );
+			}
+		}
+
+		assertEquals( "Failed to return correct size.", expected.size(), index.size() );
+		assertEquals( "In-order iterator is out of order.", new ArrayList<String>( expected ),
+				toList( index.inorderIterator() ) );
+		assertEquals( "Failed to build a balanced tree.", 32 - Integer.numberOfLeadingZeros( expected.size() ),
+				index.getTree().getHeight() );
+	}
+
+	/**
+	 * Test method for {@link implementations.HashedWordIndex#getTree()} to
+	 * hand out a tree that can be changed without changing the index, and
+	 * that does not change when words are added.
+	 */
+	@Test
+	public void testGetTree()
+	{
+		index.computeIfAbsent( "b", CharSequence::toString );
+		index.computeIfAbsent( "c", CharSequence::toString );
+		assertEquals( "b", index.inorderIterator().next() );
+		BSTree<String> tree = index.getTree();
+		tree.add( "a" );
+		assertEquals( "Failed to keep the index apart from the tree.", Arrays.asList( "b", "c" ),
+				toList( index.inorderIterator() ) );
+		assertNotSame( "Failed to hand out a new tree.", tree, index.getTree() );
+
+		index.computeIfAbsent( "d", CharSequence::toString );
+		assertEquals( "Failed to leave the old tree alone.", 3, tree.size() );
+		assertEquals( "Failed to return correct size.", 3, index.getTree().size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.HashedWordIndex#prefixIterator(java.lang.String)}
+	 * to match the BSTree index.
+	 */
+	@Test
+	public void testPrefixIterator()
+	{
+		WordIndex<String> reference = new TreeWordIndex<String>( new BSTree<String>( true ), CharSequence::compare,
+				s -> s );
+		for( String word : new String[] { "kitty", "kit", "kitten", "kiwi", "king", "apple", "kitchen", "k" } )
+		{
+			index.computeIfAbsent( word, CharSequence::toString );
+			reference.computeIfAbsent( word, CharSequence::toString );
+		}
+
+		for( String prefix : new String[] { "", "k", "ki", "kit", "kitt", "kitty", "kittyx", "kx", "b" } )
+		{
+			assertEquals( "Failed to match prefix " + prefix, toList( reference.prefixIterator( prefix ) ),
+					toList( index.prefixIterator( prefix ) ) );
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.HashedWordIndex#computeIfAbsent(java.lang.CharSequence, java.util.function.Function)}
+	 * to reject a mapping function that returns null.
+	 */
+	@Test( expected = NullPointerException.class )
+	public void testComputeIfAbsent_NullElement()
+	{
+		index.computeIfAbsent( "word", w -> null );
+	}
+
+	private static List<String> toList( Iterator<String> it )
+	{
+		List<String> list = new ArrayList<String>();
+		while( it.hasNext() )
+		{
+			list.add( it.next() );
+		}
+		return list;
+	}
+}
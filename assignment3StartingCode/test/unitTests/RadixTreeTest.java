@@ -0,0 +1,175 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+import utilities.WordIndex;
+
+import implementations.BSTree;
+import implementations.RadixTree;
+import implementations.TreeWordIndex;
+
+/**
+ * Class Description: Tests for the RadixTree word index, checked against a
+ * TreeWordIndex over a BSTree holding the same words.
+ */
+
+public class RadixTreeTest
+{
+	// Attributes
+	private RadixTree<String> tree;
+
+	/**
+	 * Initializes a new empty RadixTree before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new RadixTree<String>();
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.RadixTree#computeIfAbsent(java.lang.CharSequence, java.util.function.Function)}
+	 * when words split an edge, end inside one and extend one.
+	 */
+	@Test
+	public void testComputeIfAbsent()
+	{
+		for( String word : new String[] { "romane", "romanus", "romulus", "rom", "rubens", "ruber", "r" } )
+		{
+			assertEquals( "Failed to add word.", word, tree.computeIfAbsent( word, CharSequence::toString ) );
+		}
+		assertEquals( "Failed to return correct size.", 7, tree.size() );
+		assertSame( "Failed to return the existing element.", tree.get( "rom" ),
+				tree.computeIfAbsent( new StringBuilder( "rom" ),
+						w -> { throw new AssertionError( "Mapping function called on a hit." ); } ) );
+
+		assertEquals( "Failed to find word.", "romanus", tree.get( "romanus" ) );
+		assertEquals( "Failed to find word.", "r", tree.get( "r" ) );
+		assertNull( "Failed to return null for a prefix.", tree.get( "roma" ) );
+		assertNull( "Failed to return null for a longer word.", tree.get( "rubenss" ) );
+		assertNull( "Failed to return null.", tree.get( "zebra" ) );
+		assertNull( "Failed to return null for the empty word.", tree.get( "" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.RadixTree#inorderIterator()} to
+	 * return the words in String.compareTo order.
+	 */
+	@Test
+	public void testInorderIterator()
+	{
+		TreeSet<String> expected = new TreeSet<String>();
+		Random random = new Random( 7 );
+		for( int i = 0; i < 5000; i++ )
+		{
+			char[] word = new char[1 + random.nextInt( 6 )];
+			for( int j = 0; j < word.length; j++ )
+			{
+				word[j] = (char) ( 'a' + random.nextInt( 4 ) );
+			}
+			String s = new String( word );
+			expected.add( s );
+			tree.computeIfAbsent( s, CharSequence::toString );
+		}
+
+		assertEquals( "Failed to return correct size.", expected.size(), tree.size() );
+		Iterator<String> it = tree.inorderIterator();
+		for( String word : expected )
+		{
+			assertEquals( "In-order iterator is out of order ", word, it.next() );
+		}
+		assertFalse( "Iterator has extra elements.", it.hasNext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.RadixTree#prefixIterator(java.lang.String)}
+	 * to match the BSTree index for prefixes that end on, inside and past an
+	 * edge.
+	 */
+	@Test
+	public void testPrefixIterator()
+	{
+		WordIndex<String> reference = new TreeWordIndex<String>( new BSTree<String>( true ), CharSequence::compare,
+				s -> s );
+		for( String word : new String[] { "kitty", "kit", "kitten", "kiwi", "king", "apple", "kitchen", "k" } )
+		{
+			tree.computeIfAbsent( word, CharSequence::toString );
+			reference.computeIfAbsent( word, CharSequence::toString );
+		}
+
+		for( String prefix : new String[] { "", "k", "ki", "kit", "kitt", "kitty", "kittyx", "kx", "b" } )
+		{
+			assertEquals( "Failed to match prefix " + prefix, toList( reference.prefixIterator( prefix ) ),
+					toList( tree.prefixIterator( prefix ) ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.RadixTree#inorderIterator()} to
+	 * fail fast once a word is added.
+	 */
+	@Test
+	public void testInorderIterator_FailFast()
+	{
+		tree.computeIfAbsent( "b", CharSequence::toString );
+		tree.computeIfAbsent( "c", CharSequence::toString );
+		Iterator<String> it = tree.inorderIterator();
+		assertEquals( "b", it.next() );
+		tree.computeIfAbsent( "a", CharSequence::toString );
+		try
+		{
+			it.next();
+			fail( "Failed to throw ConcurrentModificationException." );
+		}
+		catch( ConcurrentModificationException e )
+		{
+			// expected
+		}
+
+		it = new RadixTree<String>().inorderIterator();
+		try
+		{
+			it.next();
+			fail( "Failed to throw NoSuchElementException." );
+		}
+		catch( NoSuchElementException e )
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.RadixTree#computeIfAbsent(java.lang.CharSequence, java.util.function.Function)}
+	 * to reject a mapping function that returns null.
+	 */
+	@Test( expected = NullPointerException.class )
+	public void testComputeIfAbsent_NullElement()
+	{
+		tree.computeIfAbsent( "word", w -> null );
+	}
+
+	private static List<String> toList( Iterator<String> it )
+	{
+		List<String> list = new ArrayList<String>();
+		while( it.hasNext() )
+		{
+			list.add( it.next() );
+		}
+		return list;
+	}
+}
@@ -0,0 +1,498 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import utilities.BlockInputStream;
+import utilities.BlockOutputStream;
+import utilities.EntryCodec;
+import utilities.EntryInput;
+import utilities.EntryOutput;
+import utilities.Iterator;
+import utilities.KeyedEntryCodec;
+import utilities.MappedRepository;
+import utilities.RepositoryManager;
+
+import implementations.BSTree;
+
+/**
+ * Class Description: Tests for saving a repository as a snapshot plus an
+ * append-only journal of later changes.
+ */
+
+public class RepositoryManagerTest
+{
+	// Attributes
+	private static final EntryCodec<Integer> CODEC = new EntryCodec<Integer>()
+	{
+		@Override
+		public void write( Integer element, EntryOutput out ) throws IOException
+		{
+			out.writeSignedVarInt( element );
+		}
+
+		@Override
+		public Integer read( EntryInput in ) throws IOException
+		{
+			return in.readSignedVarInt();
+		}
+	};
+
+	private static final KeyedEntryCodec<String> WORDS = new KeyedEntryCodec<String>()
+	{
+		@Override
+		public String keyOf( String element )
+		{
+			return element;
+		}
+
+		@Override
+		public void write( String element, EntryOutput out ) throws IOException
+		{
+			out.writeString( element );
+			out.writeSymbol( element.substring( 0, 1 ) );
+		}
+
+		@Override
+		public String read( EntryInput in ) throws IOException
+		{
+			String element = in.readString();
+			assertEquals( "Failed to read back the symbol.", element.substring( 0, 1 ), in.readSymbol() );
+			return element;
+		}
+	};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private File directory;
+
+	/**
+	 * Points each test at its own empty directory.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = folder.getRoot();
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#appendToRepository(java.io.File, implementations.BSTree, utilities.EntryCodec)}
+	 * to replay every appended change on top of the snapshot.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAppendAndLoad() throws Exception
+	{
+		assertNull( "Failed to return null.", RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ) );
+
+		RepositoryManager.saveRepository( directory, treeOf( 10, 20, 30 ), CODEC );
+		RepositoryManager.appendToRepository( directory, treeOf( 5, 20 ), CODEC );
+		RepositoryManager.appendToRepository( directory, treeOf( 40 ), CODEC );
+
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 5, 10, 20, 30, 40 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#compactInBackground(java.io.File, implementations.BSTree, utilities.EntryCodec)}
+	 * to fold the journal into the snapshot and empty it.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCompaction() throws Exception
+	{
+		RepositoryManager.appendToRepository( directory, treeOf( 1, 2 ), CODEC );
+		assertTrue( "Failed to ask for a first snapshot.", RepositoryManager.needsCompaction( directory ) );
+
+		BSTree<Integer> tree = RepositoryManager.loadRepository( directory, CODEC, this::keepFirst );
+		RepositoryManager.compactInBackground( directory, tree.snapshot(), CODEC ).join();
+		assertFalse( "Failed to empty the journal.", RepositoryManager.needsCompaction( directory ) );
+
+		RepositoryManager.appendToRepository( directory, treeOf( 3 ), CODEC );
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 1, 2, 3 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#appendToRepository(java.io.File, implementations.BSTree, utilities.EntryCodec)}
+	 * to start a journal that was deleted, or whose header was cut short,
+	 * after the changes the snapshot covers, so the next change is loaded.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAppend_AfterDeletedJournal() throws Exception
+	{
+		RepositoryManager.appendToRepository( directory, treeOf( 1 ), CODEC );
+		RepositoryManager.appendToRepository( directory, treeOf( 2 ), CODEC );
+		RepositoryManager.compactInBackground( directory, treeOf( 1, 2 ), CODEC ).join();
+		File journal = new File( directory, "repository.journal" );
+		assertTrue( "Failed to delete the journal.", journal.delete() );
+
+		RepositoryManager.appendToRepository( directory, treeOf( 3 ), CODEC );
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 1, 2, 3 );
+
+		RepositoryManager.compactInBackground( directory, treeOf( 1, 2, 3 ), CODEC ).join();
+		try( RandomAccessFile file = new RandomAccessFile( journal, "rw" ) )
+		{
+			file.setLength( 6 );
+		}
+		RepositoryManager.appendToRepository( directory, treeOf( 4 ), CODEC );
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 1, 2, 3, 4 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#loadRepository(java.io.File, utilities.EntryCodec, java.util.function.BinaryOperator)}
+	 * to ignore a record cut short by a crash at the end of the journal.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLoad_TornJournalTail() throws Exception
+	{
+		RepositoryManager.appendToRepository( directory, treeOf( 7 ), CODEC );
+		try( FileOutputStream out = new FileOutputStream( new File( directory, "repository.journal" ), true ) )
+		{
+			out.write( new byte[] { 0, 0, 1, 0, 42 } );
+		}
+
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 7 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#appendToRepository(java.io.File, implementations.BSTree, utilities.EntryCodec)}
+	 * to cut off a torn record before appending after it.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAppend_AfterTornJournalTail() throws Exception
+	{
+		RepositoryManager.appendToRepository( directory, treeOf( 7 ), CODEC );
+		try( FileOutputStream out = new FileOutputStream( new File( directory, "repository.journal" ), true ) )
+		{
+			out.write( new byte[] { 0, 0, 1, 0, 42 } );
+		}
+		RepositoryManager.appendToRepository( directory, treeOf( 8 ), CODEC );
+
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 7, 8 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#loadRepository(java.io.File, utilities.EntryCodec, java.util.function.BinaryOperator)}
+	 * to skip a journal record whose checksum does not match.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLoad_DamagedJournalRecord() throws Exception
+	{
+		RepositoryManager.appendToRepository( directory, treeOf( 1 ), CODEC );
+		RepositoryManager.appendToRepository( directory, treeOf( 2 ), CODEC );
+		// Header is magic, version and base; the first payload follows its length
+		flipByte( new File( directory, "repository.journal" ), 4 + 1 + 8 + 4 );
+
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 2 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#loadRepository(java.io.File, utilities.EntryCodec, java.util.function.BinaryOperator)}
+	 * to fall back to the backup snapshot and the journal it needs when the
+	 * snapshot is damaged.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLoad_CorruptSnapshot() throws Exception
+	{
+		RepositoryManager.saveRepository( directory, treeOf( 1, 2 ), CODEC );
+		RepositoryManager.appendToRepository( directory, treeOf( 3 ), CODEC );
+		RepositoryManager.compactInBackground( directory, treeOf( 1, 2, 3 ), CODEC ).join();
+		RepositoryManager.appendToRepository( directory, treeOf( 4 ), CODEC );
+		assertTrue( "Failed to keep a backup.", new File( directory, "repository.ser.bak" ).exists() );
+
+		File snapshot = new File( directory, "repository.ser" );
+		flipByte( snapshot, (int) snapshot.length() - 6 );
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 1, 2, 3, 4 );
+
+		try( RandomAccessFile file = new RandomAccessFile( snapshot, "rw" ) )
+		{
+			file.setLength( 5 );
+		}
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 1, 2, 3, 4 );
+
+		// The damaged snapshot must not replace the good backup
+		RepositoryManager.compactInBackground( directory, treeOf( 1, 2, 3, 4 ), CODEC ).join();
+		flipByte( snapshot, (int) snapshot.length() - 6 );
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 1, 2, 3, 4 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#lookup(java.io.File, java.lang.String, utilities.KeyedEntryCodec, java.util.function.BinaryOperator)}
+	 * to load the whole repository when a record in the index is damaged.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLookup_CorruptIndex() throws Exception
+	{
+		BSTree<String> words = new BSTree<String>( true );
+		words.add( "apple" );
+		words.add( "mango" );
+		RepositoryManager.saveRepository( directory, words, WORDS );
+
+		// The symbol id after the first key, past the 48 byte header
+		File index = new File( directory, "repository.idx" );
+		flipByte( index, 48 + 1 + 5 );
+		try( MappedRepository<String> mapped = MappedRepository.open( index, WORDS ) )
+		{
+			mapped.get( "apple" );
+			fail( "Failed to detect damaged record." );
+		}
+		catch( StreamCorruptedException e )
+		{
+			// expected
+		}
+
+		assertEquals( "Failed to find key.", "apple", RepositoryManager.lookup( directory, "apple", WORDS, String::concat ) );
+	}
+
+	/**
+	 * Test method for {@link utilities.BlockOutputStream} and
+	 * {@link utilities.BlockInputStream} to read back several blocks and to
+	 * report a damaged or cut short stream.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testBlockStreams() throws Exception
+	{
+		byte[] data = new byte[200000];
+		for( int i = 0; i < data.length; i++ )
+		{
+			data[i] = (byte) ( i * 31 );
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( BlockOutputStream out = new BlockOutputStream( bytes ) )
+		{
+			out.write( data );
+		}
+		byte[] written = bytes.toByteArray();
+		assertArrayEquals( "Failed to read back the blocks.", data, readBlocks( written ) );
+
+		written[100000] ^= 1;
+		try
+		{
+			readBlocks( written );
+			fail( "Failed to detect damaged block." );
+		}
+		catch( StreamCorruptedException e )
+		{
+			// expected
+		}
+
+		try
+		{
+			readBlocks( Arrays.copyOf( bytes.toByteArray(), 70000 ) );
+			fail( "Failed to detect missing blocks." );
+		}
+		catch( EOFException e )
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#loadRepository(java.io.File, utilities.EntryCodec, java.util.function.BinaryOperator)}
+	 * to still read a snapshot written with Java serialization.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLoad_SerializedSnapshot() throws Exception
+	{
+		try( ObjectOutputStream out = new ObjectOutputStream(
+				new FileOutputStream( new File( directory, "repository.ser" ) ) ) )
+		{
+			out.writeObject( treeOf( 3, 1, 2 ) );
+		}
+		RepositoryManager.appendToRepository( directory, treeOf( 4 ), CODEC );
+
+		assertContents( RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ), 1, 2, 3, 4 );
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#loadRepository(java.io.File, utilities.EntryCodec, java.util.function.BinaryOperator)}
+	 * to load a serialized tree from before balanced mode as a balanced tree,
+	 * and save it as one.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLoad_SerializedUnbalancedSnapshot() throws Exception
+	{
+		BSTree<Integer> legacy = new BSTree<Integer>( false );
+		for( int i = 1; i <= 100; i++ )
+		{
+			legacy.add( i );
+		}
+		try( ObjectOutputStream out = new ObjectOutputStream(
+				new FileOutputStream( new File( directory, "repository.ser" ) ) ) )
+		{
+			out.writeObject( legacy );
+		}
+
+		BSTree<Integer> tree = RepositoryManager.loadRepository( directory, CODEC, this::keepFirst );
+		assertTrue( "Failed to turn on balanced mode.", tree.isBalanced() );
+		assertEquals( "Failed to rebuild the tree.", 7, tree.getHeight() );
+
+		RepositoryManager.saveRepository( directory, tree, CODEC );
+		assertTrue( "Failed to save balanced mode.",
+				RepositoryManager.loadRepository( directory, CODEC, this::keepFirst ).isBalanced() );
+	}
+
+	/**
+	 * Test method for {@link utilities.EntryOutput} and
+	 * {@link utilities.EntryInput} to read back varints, strings and symbols.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testEntryOutputAndInput() throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( EntryOutput out = new EntryOutput( bytes ) )
+		{
+			out.writeVarInt( 127 );
+			out.writeVarInt( Integer.MAX_VALUE );
+			out.writeSignedVarInt( -1 );
+			out.writeString( "na\u00efve" );
+			out.writeSymbol( "test1.txt" );
+			out.writeSymbol( "test2.txt" );
+			out.writeSymbol( "test1.txt" );
+		}
+		assertEquals( "Failed to write a small varint in one byte.", 1 + 5 + 1 + 7 + 11 + 11 + 1, bytes.size() );
+
+		try( EntryInput in = new EntryInput( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			assertEquals( 127, in.readVarInt() );
+			assertEquals( Integer.MAX_VALUE, in.readVarInt() );
+			assertEquals( -1, in.readSignedVarInt() );
+			assertEquals( "na\u00efve", in.readString() );
+			assertEquals( "test1.txt", in.readSymbol() );
+			assertEquals( "test2.txt", in.readSymbol() );
+			assertEquals( "test1.txt", in.readSymbol() );
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link utilities.RepositoryManager#lookup(java.io.File, java.lang.String, utilities.KeyedEntryCodec, java.util.function.BinaryOperator)}
+	 * to find keys in the mapped index and in the journal written since.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLookup() throws Exception
+	{
+		BSTree<String> words = new BSTree<String>( true );
+		for( String word : new String[] { "kitty", "hello", "apple", "zebra", "mango", "banana" } )
+		{
+			words.add( word );
+		}
+		RepositoryManager.saveRepository( directory, words, WORDS );
+		BSTree<String> later = new BSTree<String>( true );
+		later.add( "cherry" );
+		RepositoryManager.appendToRepository( directory, later, WORDS );
+
+		File index = new File( directory, "repository.idx" );
+		try( MappedRepository<String> mapped = MappedRepository.open( index, WORDS ) )
+		{
+			assertEquals( "Failed to return correct size.", 6, mapped.size() );
+			assertEquals( "Failed to find first key.", "apple", mapped.get( "apple" ) );
+			assertEquals( "Failed to find last key.", "zebra", mapped.get( "zebra" ) );
+			assertNull( "Failed to return null.", mapped.get( "cherry" ) );
+			assertNull( "Failed to return null.", mapped.get( "zzz" ) );
+		}
+
+		assertEquals( "Failed to find key.", "mango", RepositoryManager.lookup( directory, "mango", WORDS, String::concat ) );
+		assertEquals( "Failed to find key in journal.", "cherry",
+				RepositoryManager.lookup( directory, "cherry", WORDS, String::concat ) );
+		assertNull( "Failed to return null.", RepositoryManager.lookup( directory, "grape", WORDS, String::concat ) );
+
+		assertTrue( index.delete() );
+		assertEquals( "Failed to find key without index.", "cherry",
+				RepositoryManager.lookup( directory, "cherry", WORDS, String::concat ) );
+	}
+
+	private byte[] readBlocks( byte[] written ) throws IOException
+	{
+		try( BlockInputStream in = new BlockInputStream( new ByteArrayInputStream( written ) ) )
+		{
+			return in.readAllBytes();
+		}
+	}
+
+	private void flipByte( File file, int position ) throws IOException
+	{
+		try( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+		{
+			raf.seek( position );
+			int b = raf.read();
+			raf.seek( position );
+			raf.write( b ^ 0x40 );
+		}
+	}
+
+	private Integer keepFirst( Integer first, Integer second )
+	{
+		return first;
+	}
+
+	private BSTree<Integer> treeOf( Integer... values )
+	{
+		BSTree<Integer> tree = new BSTree<Integer>( true );
+		for( Integer value : values )
+		{
+			tree.add( value );
+		}
+		return tree;
+	}
+
+	private void assertContents( BSTree<Integer> tree, int... expected )
+	{
+		Iterator<Integer> it = tree.inorderIterator();
+		for( int value : expected )
+		{
+			assertEquals( "Loaded repository is out of order ", value, (int) it.next() );
+		}
+		assertFalse( "Loaded repository has extra elements.", it.hasNext() );
+	}
+}
@@ -0,0 +1,156 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+import application.WordTracker.FileInfo;
+import application.WordTracker.WordEntry;
+import utilities.EntryInput;
+import utilities.EntryOutput;
+
+/**
+ * Class Description: Tests for WordEntry and the delta-encoded line lists
+ * kept in FileInfo.
+ */
+
+public class WordEntryTest
+{
+	/**
+	 * Test method for {@link application.WordTracker.FileInfo#addLine(int)}
+	 * to keep lines in order, including repeats, lines that go back and
+	 * lines far apart.
+	 */
+	@Test
+	public void testAddLine()
+	{
+		FileInfo info = new FileInfo();
+		int[] lines = { 3, 3, 1, 200, 70000, 2, Integer.MAX_VALUE, 1 };
+		for( int line : lines )
+		{
+			info.addLine( line );
+		}
+
+		assertArrayEquals( "Failed to read back lines.", lines, info.getLines() );
+		assertEquals( "Failed to return correct frequency.", lines.length, info.getFrequency() );
+	}
+
+	/**
+	 * Test method for {@link application.WordTracker.FileInfo#shiftLines(int)}
+	 * when the first delta grows to a longer varint.
+	 */
+	@Test
+	public void testShiftLines()
+	{
+		FileInfo info = new FileInfo();
+		info.addLine( 1 );
+		info.addLine( 5 );
+		info.addLine( 5 );
+		info.shiftLines( 100000 );
+		info.addLine( 100006 );
+
+		assertArrayEquals( "Failed to shift lines.", new int[] { 100001, 100005, 100005, 100006 }, info.getLines() );
+	}
+
+	/**
+	 * Test method for {@link application.WordTracker.FileInfo#addAll(FileInfo)}
+	 * to append lines that start before the last line already held.
+	 */
+	@Test
+	public void testAddAll()
+	{
+		FileInfo first = new FileInfo();
+		first.addLine( 10 );
+		first.addLine( 20 );
+		FileInfo second = new FileInfo();
+		second.addLine( 2 );
+		second.addLine( 300 );
+
+		first.addAll( second );
+		first.addAll( new FileInfo() );
+		first.addLine( 301 );
+
+		assertArrayEquals( "Failed to append lines.", new int[] { 10, 20, 2, 300, 301 }, first.getLines() );
+		assertEquals( "Failed to return correct frequency.", 5, first.getFrequency() );
+		assertArrayEquals( "Failed to leave the other info alone.", new int[] { 2, 300 }, second.getLines() );
+	}
+
+	/**
+	 * Test method for
+	 * {@link application.WordTracker.WordEntry#mergeFrom(WordEntry)} to keep
+	 * files in the order first seen.
+	 */
+	@Test
+	public void testMergeFrom()
+	{
+		WordEntry entry = new WordEntry( "kitty" );
+		entry.addOccurrence( "b.txt", 4 );
+		entry.addOccurrence( "a.txt", 1 );
+		WordEntry other = new WordEntry( "kitty" );
+		other.addOccurrence( "c.txt", 9 );
+		other.addOccurrence( "a.txt", 7 );
+
+		entry.mergeFrom( other );
+
+		assertEquals( "Failed to return correct file count.", 3, entry.getFileCount() );
+		assertEquals( "b.txt", entry.getFileName( 0 ) );
+		assertEquals( "a.txt", entry.getFileName( 1 ) );
+		assertEquals( "c.txt", entry.getFileName( 2 ) );
+		assertArrayEquals( "Failed to merge lines.", new int[] { 1, 7 }, entry.getFileInfo( "a.txt" ).getLines() );
+		assertNull( "Failed to return null.", entry.getFileInfo( "d.txt" ) );
+		assertEquals( "Failed to return correct total.", 4, entry.getTotalFrequency() );
+	}
+
+	/**
+	 * Test method for {@link application.WordTracker.WordEntry#CODEC} and
+	 * Java serialization to read back the same entry.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCodecAndSerialization() throws Exception
+	{
+		WordEntry entry = new WordEntry( "hello" );
+		entry.addOccurrence( "test1.txt", 12 );
+		entry.addOccurrence( "test1.txt", 3 );
+		entry.addOccurrence( "test2.txt", 5 );
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( EntryOutput out = new EntryOutput( bytes ) )
+		{
+			WordEntry.CODEC.write( entry, out );
+		}
+		try( EntryInput in = new EntryInput( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			assertSameEntry( entry, WordEntry.CODEC.read( in ) );
+		}
+
+		bytes.reset();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( entry );
+		}
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			assertSameEntry( entry, (WordEntry) in.readObject() );
+		}
+	}
+
+	private void assertSameEntry( WordEntry expected, WordEntry actual )
+	{
+		assertEquals( "Failed to read back word.", expected.getWord(), actual.getWord() );
+		assertEquals( "Failed to read back files.", expected.getFileCount(), actual.getFileCount() );
+		for( int i = 0; i < expected.getFileCount(); i++ )
+		{
+			assertEquals( expected.getFileName( i ), actual.getFileName( i ) );
+			assertArrayEquals( "Failed to read back lines.", expected.getFileInfo( i ).getLines(),
+					actual.getFileInfo( i ).getLines() );
+			assertEquals( expected.getFileInfo( i ).getFrequency(), actual.getFileInfo( i ).getFrequency() );
+		}
+	}
+}
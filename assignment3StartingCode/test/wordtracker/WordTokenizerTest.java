@@ -0,0 +1,215 @@
+package wordtracker;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Class Description: Tests for the WordTokenizer, each word checked as
+ * "word@line" against what the regex split it replaced would give.
+ */
+
+public class WordTokenizerTest
+{
+	// Attributes
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for {@link wordtracker.WordTokenizer#next()} to end lines
+	 * at "\n", "\r" and "\r\n", and count blank lines.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testNext_LineBreaks() throws Exception
+	{
+		File file = write( "a\nb\r\nc\rd\r\re\n\nf".getBytes( StandardCharsets.US_ASCII ) );
+
+		assertEquals( "Failed to number lines.", Arrays.asList( "a@1", "b@2", "c@3", "d@4", "e@6", "f@8" ),
+				tokens( file, true ) );
+		assertEquals( "Failed to count line breaks.", 7, lineBreaks( file ) );
+	}
+
+	/**
+	 * Test method for {@link wordtracker.WordTokenizer#next()} to keep
+	 * apostrophes in words only when enabled.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testNext_Apostrophes() throws Exception
+	{
+		File file = write( "Don't 'tis rock'n'roll '".getBytes( StandardCharsets.US_ASCII ) );
+
+		assertEquals( "Failed to keep apostrophes.", Arrays.asList( "don't@1", "'tis@1", "rock'n'roll@1", "'@1" ),
+				tokens( file, true ) );
+		assertEquals( "Failed to split at apostrophes.",
+				Arrays.asList( "don@1", "t@1", "tis@1", "rock@1", "n@1", "roll@1" ), tokens( file, false ) );
+	}
+
+	/**
+	 * Test method for {@link wordtracker.WordTokenizer#next()} to treat every
+	 * byte outside ASCII as a separator and lowercase only ASCII letters.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testNext_NonAscii() throws Exception
+	{
+		File file = write( "Café NAÏVE 日本X1\nété".getBytes( StandardCharsets.UTF_8 ) );
+
+		assertEquals( "Failed to split at non-ASCII bytes.",
+				Arrays.asList( "caf@1", "na@1", "ve@1", "x1@1", "t@2" ), tokens( file, true ) );
+
+		file = write( new byte[] { 'a', (byte) 0x80, 'b', (byte) 0xFF, 'c', (byte) 0x85, 'd' } );
+		assertEquals( "Failed to split at high bytes.", Arrays.asList( "a@1", "b@1", "c@1", "d@1" ),
+				tokens( file, true ) );
+		assertEquals( "Failed to ignore NEL as a line break.", 0, lineBreaks( file ) );
+	}
+
+	/**
+	 * Test method for {@link wordtracker.WordTokenizer#lineNumber()} and
+	 * {@link wordtracker.WordTokenizer#lineBreaks()} for an empty file, a
+	 * file of separators and a last line without a line break.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLineNumber() throws Exception
+	{
+		assertEquals( "Failed to return no words.", new ArrayList<String>(), tokens( write( new byte[0] ), true ) );
+		assertEquals( "Failed to count no line breaks.", 0, lineBreaks( write( new byte[0] ) ) );
+
+		File file = write( " .,\n\n-".getBytes( StandardCharsets.US_ASCII ) );
+		assertEquals( "Failed to return no words.", new ArrayList<String>(), tokens( file, true ) );
+		assertEquals( "Failed to count line breaks.", 2, lineBreaks( file ) );
+
+		file = write( "\n\nlast word".getBytes( StandardCharsets.US_ASCII ) );
+		assertEquals( "Failed to number the last line.", Arrays.asList( "last@3", "word@3" ), tokens( file, true ) );
+		assertEquals( "Failed to count line breaks.", 2, lineBreaks( file ) );
+	}
+
+	/**
+	 * Test method for {@link wordtracker.WordTokenizer#next()} to give the
+	 * same words and lines as the regex split over lines read by
+	 * BufferedReader that it replaced.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testNext_MatchesRegex() throws Exception
+	{
+		for( String name : new String[] { "res/test1.txt", "res/test2.txt", "res/test3.txt" } )
+		{
+			File file = new File( name );
+			assertEquals( "Failed to match the regex split of " + name, regexTokens( file ), tokens( file, true ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link wordtracker.WordTokenizer#next()} to give the
+	 * same words and lines when the file is mapped in small windows, so that
+	 * words and "\r\n" line breaks cross from one window into the next.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testNext_WindowBoundaries() throws Exception
+	{
+		File file = write( "kitty\r\ncross'ing windows\r\n\nx\rlongerword 1\n"
+				.getBytes( StandardCharsets.US_ASCII ) );
+		List<String> expected = Arrays.asList( "kitty@1", "cross'ing@2", "windows@2", "x@4", "longerword@5", "1@5" );
+		assertEquals( "Failed to split in one window.", expected, tokens( file, true ) );
+
+		for( long windowSize = 1; windowSize <= 8; windowSize++ )
+		{
+			List<String> tokens = new ArrayList<String>();
+			int lineBreaks;
+			try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+			{
+				WordTokenizer tokenizer = new WordTokenizer( channel, 0, channel.size(), true, windowSize );
+				while( tokenizer.next() )
+				{
+					tokens.add( tokenizer + "@" + tokenizer.lineNumber() );
+				}
+				lineBreaks = tokenizer.lineBreaks();
+			}
+			assertEquals( "Failed to join words across windows of " + windowSize + " bytes.", expected, tokens );
+			assertEquals( "Failed to count line breaks across windows of " + windowSize + " bytes.", 5, lineBreaks );
+		}
+	}
+
+	private File write( byte[] bytes ) throws IOException
+	{
+		File file = folder.newFile();
+		Files.write( file.toPath(), bytes );
+		return file;
+	}
+
+	static List<String> tokens( File file, boolean apostrophes ) throws IOException
+	{
+		List<String> tokens = new ArrayList<String>();
+		try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+		{
+			WordTokenizer tokenizer = new WordTokenizer( channel, apostrophes );
+			while( tokenizer.next() )
+			{
+				tokens.add( tokenizer + "@" + tokenizer.lineNumber() );
+			}
+		}
+		return tokens;
+	}
+
+	private static int lineBreaks( File file ) throws IOException
+	{
+		try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+		{
+			WordTokenizer tokenizer = new WordTokenizer( channel, true );
+			while( tokenizer.next() )
+			{
+				// scan to the end
+			}
+			return tokenizer.lineBreaks();
+		}
+	}
+
+	// The split WordTracker used before WordTokenizer.
+	private static List<String> regexTokens( File file ) throws IOException
+	{
+		List<String> tokens = new ArrayList<String>();
+		Pattern pattern = Pattern.compile( "[A-Za-z0-9']+" );
+		try( BufferedReader reader = new BufferedReader( new FileReader( file ) ) )
+		{
+			String line;
+			int lineNumber = 1;
+			while( ( line = reader.readLine() ) != null )
+			{
+				Matcher m = pattern.matcher( line );
+				while( m.find() )
+				{
+					tokens.add( m.group().toLowerCase( Locale.ROOT ) + "@" + lineNumber );
+				}
+				lineNumber++;
+			}
+		}
+		return tokens;
+	}
+}
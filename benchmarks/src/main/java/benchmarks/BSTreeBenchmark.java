@@ -0,0 +1,141 @@
+package benchmarks;
+
+import implementations.BSTree;
+import utilities.Iterator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * BSTree add, search and contains over keys in random, sorted and Zipf
+ * order, and a full walk with each iterator. Each score is one pass over
+ * all size keys.
+ *
+ * Sorted keys are the case that made the unbalanced tree degenerate, so
+ * run with -p balanced=false to see it; Zipf keys repeat, so most adds find
+ * the key already there and most searches hit the same few paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BSTreeBenchmark {
+
+    public enum Order { RANDOM, SORTED, ZIPF }
+
+    @Param({ "RANDOM", "SORTED", "ZIPF" })
+    public Order order;
+
+    @Param({ "100000" })
+    public int size;
+
+    @Param({ "true" })
+    public boolean balanced;
+
+    private Integer[] keys;
+    private Integer[] misses;
+    private BSTree<Integer> tree;
+
+    @Setup
+    public void setUp() {
+        keys = keys(order, size, 42);
+        misses = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            misses[i] = -1 - keys[i]; // keys are never negative
+        }
+        tree = build();
+    }
+
+    static Integer[] keys(Order order, int size, long seed) {
+        Integer[] keys = new Integer[size];
+        switch (order) {
+        case SORTED:
+            for (int i = 0; i < size; i++) keys[i] = i;
+            break;
+        case RANDOM:
+            for (int i = 0; i < size; i++) keys[i] = i;
+            Random random = new Random(seed);
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                Integer swap = keys[i];
+                keys[i] = keys[j];
+                keys[j] = swap;
+            }
+            break;
+        default:
+            Zipf zipf = new Zipf(size, 1.0, seed);
+            for (int i = 0; i < size; i++) keys[i] = zipf.next();
+        }
+        return keys;
+    }
+
+    private BSTree<Integer> build() {
+        BSTree<Integer> built = new BSTree<>(balanced);
+        for (Integer key : keys) {
+            built.add(key);
+        }
+        return built;
+    }
+
+    @Benchmark
+    public BSTree<Integer> add() {
+        return build();
+    }
+
+    @Benchmark
+    public void search(Blackhole blackhole) {
+        for (Integer key : keys) {
+            blackhole.consume(tree.search(key));
+        }
+    }
+
+    @Benchmark
+    public void contains(Blackhole blackhole) {
+        for (Integer key : keys) {
+            blackhole.consume(tree.contains(key));
+        }
+    }
+
+    @Benchmark
+    public void containsMiss(Blackhole blackhole) {
+        for (Integer key : misses) {
+            blackhole.consume(tree.contains(key));
+        }
+    }
+
+    @Benchmark
+    public void inorderIterator(Blackhole blackhole) {
+        walk(tree.inorderIterator(), blackhole);
+    }
+
+    @Benchmark
+    public void preorderIterator(Blackhole blackhole) {
+        walk(tree.preorderIterator(), blackhole);
+    }
+
+    @Benchmark
+    public void postorderIterator(Blackhole blackhole) {
+        walk(tree.postorderIterator(), blackhole);
+    }
+
+    private static void walk(Iterator<Integer> it, Blackhole blackhole) {
+        while (it.hasNext()) {
+            blackhole.consume(it.next());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import application.WordTracker;
+import implementations.BSTree;
+import implementations.TreeWordIndex;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The text files the benchmarks read. A corpus is named by a @Param value:
+ * "test1" to "test3" are the files in the res folder, found through the
+ * wordtracker.res system property (default ../assignment3StartingCode/res),
+ * and a size such as "512k" or "16m" is zipf text from CorpusGenerator of
+ * about that many bytes, the same for every run.
+ */
+final class Corpus {
+
+    private static final String RES = System.getProperty("wordtracker.res", "../assignment3StartingCode/res");
+
+    private Corpus() {
+    }
+
+    /**
+     * @param name a res file name without .txt, or a size with a k or m suffix
+     * @return the file, generated into the temp folder if needed
+     */
+    static File resolve(String name) throws IOException {
+        if (name.startsWith("test")) {
+            File file = new File(RES, name + ".txt");
+            if (!file.isFile()) {
+                throw new IOException("Corpus not found: " + file.getAbsolutePath()
+                        + " (set -Dwordtracker.res to the res folder)");
+            }
+            return file;
+        }
+
+        File file = File.createTempFile("corpus-" + name + "-", ".txt");
+        file.deleteOnExit();
+        CorpusGenerator.zipf(file, CorpusGenerator.parseSize(name), CorpusGenerator.DEFAULT_VOCABULARY,
+                CorpusGenerator.DEFAULT_SKEW, 0, 1);
+        return file;
+    }
+
+    /**
+     * Scans one file into a new balanced tree with WordTracker.scanFileIntoIndex.
+     */
+    static BSTree<WordTracker.WordEntry> scan(File file) throws IOException {
+        BSTree<WordTracker.WordEntry> tree = new BSTree<>(true);
+        WordTracker.scanFileIntoIndex(file, file.getName(), new TreeWordIndex<>(tree,
+                WordTracker.WordEntry::compareWord, WordTracker.WordEntry::new));
+        return tree;
+    }
+}
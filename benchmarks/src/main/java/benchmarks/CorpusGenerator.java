@@ -0,0 +1,194 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Writes synthetic text for WordTracker to read, in the shapes that stress
+ * it in different ways. Everything is drawn from a seeded Random, so the same
+ * arguments always give the same bytes.
+ *
+ *   zipf        lines of 4 to 15 words from a Zipf-distributed vocabulary,
+ *               like natural text
+ *   sorted      distinct words in alphabetical order, one per line, which
+ *               is the worst case for an unbalanced tree
+ *   long-lines  zipf text with a line break only every -line bytes
+ *   many-files  a directory of -files zipf files sharing the size between them
+ *
+ * Usage:
+ *   java -cp target/benchmarks.jar benchmarks.CorpusGenerator shape size output
+ *        [-vocabulary=50000] [-skew=1.0] [-line=4m] [-files=1000] [-seed=1]
+ *
+ * Sizes take a k, m or g suffix.
+ */
+public final class CorpusGenerator {
+
+    public enum Shape { ZIPF, SORTED, LONG_LINES, MANY_FILES }
+
+    static final int DEFAULT_VOCABULARY = 50_000;
+    static final double DEFAULT_SKEW = 1.0;
+    static final long DEFAULT_LINE = 4L << 20;
+    static final int DEFAULT_FILES = 1000;
+
+    private static final int SORTED_WORD_LENGTH = 6;
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: CorpusGenerator zipf|sorted|long-lines|many-files <size> <output>"
+                    + " [-vocabulary=N] [-skew=S] [-line=size] [-files=N] [-seed=N]");
+            return;
+        }
+        Shape shape = parseShape(args[0]);
+        long bytes = parseSize(args[1]);
+        File output = new File(args[2]);
+
+        int vocabulary = DEFAULT_VOCABULARY;
+        double skew = DEFAULT_SKEW;
+        long line = DEFAULT_LINE;
+        int files = DEFAULT_FILES;
+        long seed = 1;
+        for (int i = 3; i < args.length; i++) {
+            String value = args[i].substring(args[i].indexOf('=') + 1);
+            if (args[i].startsWith("-vocabulary=")) vocabulary = Integer.parseInt(value);
+            else if (args[i].startsWith("-skew=")) skew = Double.parseDouble(value);
+            else if (args[i].startsWith("-line=")) line = parseSize(value);
+            else if (args[i].startsWith("-files=")) files = Integer.parseInt(value);
+            else if (args[i].startsWith("-seed=")) seed = Long.parseLong(value);
+            else throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+
+        generate(shape, output, bytes, vocabulary, skew, line, files, seed);
+    }
+
+    /**
+     * Writes one corpus of the given shape.
+     *
+     * @param output a file, or for MANY_FILES a directory that is created if needed
+     * @param bytes the total size to write, reached to within one line
+     * @param line the length of a line for LONG_LINES
+     * @param files the number of files for MANY_FILES
+     */
+    public static void generate(Shape shape, File output, long bytes, int vocabulary, double skew, long line,
+            int files, long seed) throws IOException {
+        switch (shape) {
+        case ZIPF:
+            zipf(output, bytes, vocabulary, skew, 0, seed);
+            break;
+        case SORTED:
+            sorted(output, bytes);
+            break;
+        case LONG_LINES:
+            zipf(output, bytes, vocabulary, skew, line, seed);
+            break;
+        default:
+            Files.createDirectories(output.toPath());
+            String[] words = vocabulary(vocabulary, seed);
+            Zipf zipf = new Zipf(words.length, skew, seed);
+            Random random = new Random(seed);
+            for (int i = 0; i < files; i++) {
+                File file = new File(output, String.format(Locale.ROOT, "file%06d.txt", i));
+                try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+                    writeWords(out, bytes / files, words, zipf, random, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes Zipf-distributed words, as lines of 4 to 15 words, or if
+     * lineBytes is positive as lines of about that many bytes.
+     */
+    public static void zipf(File file, long bytes, int vocabulary, double skew, long lineBytes, long seed)
+            throws IOException {
+        String[] words = vocabulary(vocabulary, seed);
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            writeWords(out, bytes, words, new Zipf(words.length, skew, seed), new Random(seed), lineBytes);
+        }
+    }
+
+    /**
+     * Writes distinct words of six letters in alphabetical order, one per
+     * line: aaaaaa, aaaaab, and so on.
+     */
+    public static void sorted(File file, long bytes) throws IOException {
+        char[] word = new char[SORTED_WORD_LENGTH + 1];
+        Arrays.fill(word, 'a');
+        word[SORTED_WORD_LENGTH] = '\n';
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.US_ASCII)) {
+            for (long written = 0; written < bytes; written += word.length) {
+                out.write(word);
+                // Count up in base 26, the last letter fastest
+                int i = SORTED_WORD_LENGTH - 1;
+                while (i >= 0 && word[i] == 'z') {
+                    word[i--] = 'a';
+                }
+                if (i < 0) {
+                    throw new IOException("Sorted corpus is limited to 26^" + SORTED_WORD_LENGTH + " words");
+                }
+                word[i]++;
+            }
+        }
+    }
+
+    private static void writeWords(Writer out, long bytes, String[] words, Zipf zipf, Random random,
+            long lineBytes) throws IOException {
+        StringBuilder line = new StringBuilder();
+        long written = 0;
+        while (written < bytes) {
+            line.setLength(0);
+            if (lineBytes > 0) {
+                long end = Math.min(lineBytes, bytes - written);
+                while (line.length() < end) {
+                    line.append(words[zipf.next()]).append(' ');
+                }
+            } else {
+                for (int n = 4 + random.nextInt(12); n > 0; n--) {
+                    line.append(words[zipf.next()]).append(' ');
+                }
+            }
+            line.setCharAt(line.length() - 1, '\n');
+            out.append(line);
+            written += line.length();
+        }
+    }
+
+    /**
+     * Makes count distinct lowercase words of 2 to 12 letters, shorter words
+     * first so that the frequent ranks are short, as in real text.
+     */
+    static String[] vocabulary(int count, long seed) {
+        Random random = new Random(seed);
+        Set<String> seen = new LinkedHashSet<>();
+        while (seen.size() < count) {
+            int length = 2 + (int) Math.min(10, Math.abs(random.nextGaussian()) * 3 + seen.size() * 6L / count);
+            char[] word = new char[length];
+            for (int i = 0; i < length; i++) {
+                word[i] = (char) ('a' + random.nextInt(26));
+            }
+            seen.add(new String(word));
+        }
+        return seen.toArray(new String[0]);
+    }
+
+    static Shape parseShape(String name) {
+        return Shape.valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    static long parseSize(String size) {
+        char unit = Character.toLowerCase(size.charAt(size.length() - 1));
+        String digits = Character.isDigit(unit) ? size : size.substring(0, size.length() - 1);
+        long multiplier = unit == 'k' ? 1L << 10 : unit == 'm' ? 1L << 20 : unit == 'g' ? 1L << 30 : 1;
+        return Long.parseLong(digits) * multiplier;
+    }
+}
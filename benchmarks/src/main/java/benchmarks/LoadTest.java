@@ -0,0 +1,261 @@
+package benchmarks;
+
+import application.WordTracker;
+import benchmarks.CorpusGenerator.Shape;
+import implementations.BSTree;
+import implementations.HashedWordIndex;
+import implementations.TreeWordIndex;
+import utilities.RepositoryManager;
+import utilities.WordIndex;
+import wordtracker.WordTokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs WordTracker end to end over generated corpora and reports, for each:
+ * tokens per second, peak heap, the number of words saved, the height of
+ * the tree built while scanning, and the size of the repository files. The
+ * saved repository is always bulk-built balanced when loaded, so its height
+ * would never show a tree that degenerated during ingestion.
+ *
+ * Each run is a separate JVM started in an empty directory, so every run
+ * starts with no repository and a failure such as a StackOverflowError or
+ * OutOfMemoryError is reported for that scenario instead of ending the
+ * harness.
+ *
+ * Usage:
+ *   java -cp target/benchmarks.jar benchmarks.LoadTest [-scale=1] [-xmx=2g]
+ *        [-timeout=600] [scenario...]
+ *
+ * The scenarios are zipf, sorted, sorted-bst, long-lines and many-files,
+ * all by default; sorted-bst scans the sorted corpus with -index=bst, the
+ * others use the default index. -scale multiplies every corpus size; the
+ * defaults total about 180 MB.
+ */
+public final class LoadTest {
+
+    private static final String PEAK_HEAP = "peakHeap=";
+    private static final String SECONDS = "seconds=";
+    private static final String HEIGHT = "height=";
+
+    private static final List<Scenario> SCENARIOS = Arrays.asList(
+            new Scenario("zipf", Shape.ZIPF, 64L << 20, null),
+            new Scenario("sorted", Shape.SORTED, 32L << 20, null),
+            new Scenario("sorted-bst", Shape.SORTED, 32L << 20, "bst"),
+            new Scenario("long-lines", Shape.LONG_LINES, 32L << 20, null),
+            new Scenario("many-files", Shape.MANY_FILES, 16L << 20, null));
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("-child")) {
+            runChild(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        double scale = 1;
+        String xmx = "2g";
+        long timeout = 600;
+        List<String> selected = new ArrayList<>();
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("-scale=")) scale = Double.parseDouble(value);
+            else if (arg.startsWith("-xmx=")) xmx = value;
+            else if (arg.startsWith("-timeout=")) timeout = Long.parseLong(value);
+            else selected.add(arg);
+        }
+
+        System.out.printf(Locale.ROOT, "%-12s %10s %10s %8s %12s %10s %9s %7s %12s%n", "scenario", "input MB",
+                "tokens", "seconds", "tokens/s", "peak MB", "words", "height", "repo bytes");
+        for (Scenario scenario : SCENARIOS) {
+            if (selected.isEmpty() || selected.contains(scenario.name)) {
+                System.out.println(scenario.run((long) (scenario.bytes * scale), xmx, timeout));
+            }
+        }
+    }
+
+    /**
+     * Runs WordTracker in this JVM and then prints the peak heap use, the
+     * seconds the run took and the ingestion tree height to stderr for the
+     * parent to read.
+     */
+    private static void runChild(String[] args) throws IOException {
+        long start = System.nanoTime();
+        WordTracker.main(args);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.err.println(PEAK_HEAP + peak);
+        System.err.println(SECONDS + seconds);
+        System.err.println(HEIGHT + ingestionHeight(args));
+    }
+
+    /**
+     * Scans the input again, file after file into one index of the kind the
+     * run used, and returns the height of that index's tree, or -1 for a
+     * radix index, which has none. This runs after the peak heap and time
+     * were taken, so it does not count towards them.
+     */
+    private static int ingestionHeight(String[] args) throws IOException {
+        String indexName = "hash";
+        for (String arg : args) {
+            if (arg.startsWith("-index=")) indexName = arg.substring("-index=".length());
+        }
+        WordIndex<WordTracker.WordEntry> index = WordTracker.indexFactory(indexName).get();
+        for (File file : inputFiles(new File(args[0]))) {
+            WordTracker.scanFileIntoIndex(file, file.getName(), index);
+        }
+        if (index instanceof TreeWordIndex) {
+            return ((TreeWordIndex<WordTracker.WordEntry>) index).getTree().getHeight();
+        }
+        if (index instanceof HashedWordIndex) {
+            return ((HashedWordIndex<WordTracker.WordEntry>) index).getTree().getHeight();
+        }
+        return -1;
+    }
+
+    private static final class Scenario {
+        final String name;
+        final Shape shape;
+        final long bytes;
+        final String index; // null for the default
+
+        Scenario(String name, Shape shape, long bytes, String index) {
+            this.name = name;
+            this.shape = shape;
+            this.bytes = bytes;
+            this.index = index;
+        }
+
+        String run(long size, String xmx, long timeout) throws IOException, InterruptedException {
+            Path work = Files.createTempDirectory("loadtest-" + name);
+            try {
+                File input = work.resolve(shape == Shape.MANY_FILES ? "input" : "input.txt").toFile();
+                CorpusGenerator.generate(shape, input, size, CorpusGenerator.DEFAULT_VOCABULARY,
+                        CorpusGenerator.DEFAULT_SKEW, CorpusGenerator.DEFAULT_LINE, CorpusGenerator.DEFAULT_FILES, 1);
+                List<File> files = inputFiles(input);
+                long inputBytes = 0;
+                long tokens = 0;
+                for (File file : files) {
+                    inputBytes += file.length();
+                    tokens += countTokens(file);
+                }
+
+                File run = Files.createDirectory(work.resolve("run")).toFile();
+                File log = work.resolve("stderr.txt").toFile();
+                List<String> command = new ArrayList<>(Arrays.asList(javaCommand(), "-Xmx" + xmx, "-cp",
+                        classPath(), LoadTest.class.getName(), "-child",
+                        input.getAbsolutePath(), "-po", "-f" + work.resolve("report.txt")));
+                if (index != null) {
+                    command.add("-index=" + index);
+                }
+                Process process = new ProcessBuilder(command)
+                        .directory(run)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(log)
+                        .start();
+                if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+                    process.destroyForcibly().waitFor();
+                    return String.format(Locale.ROOT, "%-12s TIMEOUT after %d s", name, timeout);
+                }
+
+                long peak = -1;
+                double seconds = -1;
+                int height = -1;
+                String lastError = "";
+                for (String line : Files.readAllLines(log.toPath(), StandardCharsets.UTF_8)) {
+                    if (line.startsWith(PEAK_HEAP)) {
+                        peak = Long.parseLong(line.substring(PEAK_HEAP.length()));
+                    } else if (line.startsWith(SECONDS)) {
+                        seconds = Double.parseDouble(line.substring(SECONDS.length()));
+                    } else if (line.startsWith(HEIGHT)) {
+                        height = Integer.parseInt(line.substring(HEIGHT.length()));
+                    } else if (!line.isBlank()) {
+                        lastError = line.trim();
+                    }
+                }
+                if (process.exitValue() != 0 || peak < 0 || seconds < 0) {
+                    return String.format(Locale.ROOT, "%-12s FAILED (exit %d): %s", name, process.exitValue(),
+                            lastError);
+                }
+
+                BSTree<WordTracker.WordEntry> tree = RepositoryManager.loadRepository(run,
+                        WordTracker.WordEntry.CODEC, WordTracker.WordEntry::mergeFrom);
+                long repositoryBytes = 0;
+                for (File file : run.listFiles()) {
+                    repositoryBytes += file.length();
+                }
+                return String.format(Locale.ROOT, "%-12s %10.1f %10d %8.2f %12.0f %10.1f %9d %7s %12d", name,
+                        inputBytes / 1e6, tokens, seconds, tokens / seconds, peak / 1e6,
+                        tree == null ? 0 : tree.size(), height < 0 ? "-" : Integer.toString(height), repositoryBytes);
+            } finally {
+                delete(work);
+            }
+        }
+    }
+
+    private static List<File> inputFiles(File input) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (input.isFile()) {
+            files.add(input);
+            return files;
+        }
+        try (Stream<Path> paths = Files.walk(input.toPath())) {
+            paths.filter(Files::isRegularFile).sorted().forEach(path -> files.add(path.toFile()));
+        }
+        return files;
+    }
+
+    // Counts words the way WordTracker splits them.
+    private static long countTokens(File file) throws IOException {
+        long tokens = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WordTokenizer tokenizer = new WordTokenizer(channel, true);
+            while (tokenizer.next()) {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+
+    // This JVM's class path with absolute entries, as the child runs elsewhere.
+    private static String classPath() {
+        StringBuilder classPath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (classPath.length() > 0) classPath.append(File.pathSeparator);
+            classPath.append(new File(entry).getAbsolutePath());
+        }
+        return classPath.toString();
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import application.WordTracker;
+import implementations.BSTree;
+import utilities.Iterator;
+import utilities.WordIndex;
+import wordtracker.WordEntry;
+import wordtracker.WordParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to read one file into a new tree with WordParser.parseFile, and into
+ * each kind of WordTracker index with WordTracker.scanFileIntoIndex followed
+ * by the in-order walk the report makes, which is when the hash index sorts
+ * its words. Divide the corpus size by the score for throughput.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({ "test3", "1m", "16m" })
+    public String corpus;
+
+    private File file;
+
+    /**
+     * The index kind, kept apart so that only scanFileIntoIndex runs once
+     * per kind.
+     */
+    @State(Scope.Benchmark)
+    public static class Index {
+        @Param({ "hash", "bst", "radix" })
+        public String index;
+
+        Supplier<WordIndex<WordTracker.WordEntry>> newIndex;
+
+        @Setup
+        public void setUp() {
+            newIndex = WordTracker.indexFactory(index);
+            if (newIndex == null) {
+                throw new IllegalArgumentException("Unknown index: " + index);
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Corpus.resolve(corpus);
+    }
+
+    @Benchmark
+    public BSTree<WordEntry> wordParser() throws IOException {
+        BSTree<WordEntry> tree = new BSTree<>(true);
+        WordParser.parseFile(file.getPath(), tree);
+        return tree;
+    }
+
+    @Benchmark
+    public int scanFileIntoIndex(Index index) throws IOException {
+        WordIndex<WordTracker.WordEntry> words = index.newIndex.get();
+        WordTracker.scanFileIntoIndex(file, file.getName(), words);
+        int count = 0;
+        Iterator<WordTracker.WordEntry> it = words.inorderIterator();
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import application.WordTracker.WordEntry;
+import implementations.BSTree;
+import utilities.RepositoryManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * RepositoryManager save and load of the tree for a whole corpus, and one
+ * lookup through the mapped index. The size of each repository file is
+ * printed once the trial ends.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+    @Param({ "test3", "16m" })
+    public String corpus;
+
+    private BSTree<WordEntry> tree;
+    private File saved;
+    private File scratch;
+    private String[] words;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        tree = Corpus.scan(Corpus.resolve(corpus));
+        saved = Files.createTempDirectory("repository-saved").toFile();
+        scratch = Files.createTempDirectory("repository-scratch").toFile();
+        RepositoryManager.saveRepository(saved, tree, WordEntry.CODEC);
+
+        words = new String[Math.min(tree.size(), 1024)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = tree.select((int) ((long) i * tree.size() / words.length)).getElement().getWord();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (File file : saved.listFiles()) {
+            System.out.printf("%n%s: %,d bytes%n", file.getName(), file.length());
+        }
+        delete(saved);
+        delete(scratch);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        RepositoryManager.saveRepository(scratch, tree, WordEntry.CODEC);
+    }
+
+    @Benchmark
+    public BSTree<WordEntry> load() throws IOException {
+        return RepositoryManager.loadRepository(saved, WordEntry.CODEC, WordEntry::mergeFrom);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void lookup(Blackhole blackhole) throws IOException {
+        String word = words[next++ % words.length];
+        blackhole.consume(RepositoryManager.lookup(saved, word, WordEntry.CODEC, WordEntry::mergeFrom));
+    }
+
+    private static void delete(File directory) {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks from 0 to n - 1 with probability proportional to
+ * 1 / (rank + 1)^skew, the way word frequencies fall off in real text: a
+ * few ranks come up constantly and most are rare.
+ */
+final class Zipf {
+
+    private final double[] cumulative;
+    private final Random random;
+
+    /**
+     * @param n the number of ranks
+     * @param skew 1.0 for natural language; 0 gives a uniform draw
+     * @param seed so that every run draws the same sequence
+     */
+    Zipf(int n, double skew, long seed) {
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= total;
+        }
+        random = new Random(seed);
+    }
+
+    int next() {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}